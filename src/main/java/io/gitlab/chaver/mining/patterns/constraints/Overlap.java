@@ -25,7 +25,6 @@ import java.util.stream.IntStream;
 public class Overlap extends Constraint implements IMonitorSolution {
 
     private TransactionalDatabase database;
-    private BitSet[] verticalRepresentation;
     private BoolVar[] x;
     private double jmax;
     private int theta;
@@ -34,7 +33,6 @@ public class Overlap extends Constraint implements IMonitorSolution {
     public Overlap(TransactionalDatabase database, BoolVar[] x, double jmax, int theta) {
         super("Overlap", new PropOverlap(database, x, jmax, theta));
         this.database = database;
-        this.verticalRepresentation = database.getVerticalRepresentation();
         this.x = x;
         this.jmax = jmax;
         this.theta = theta;
@@ -44,8 +42,8 @@ public class Overlap extends Constraint implements IMonitorSolution {
     }
 
     private BitSet createCover() {
-        BitSet cover = new BitSet(database.getNbTransactions());
-        cover.set(0, database.getNbTransactions());
+        BitSet cover = new BitSet(database.getNbRows());
+        cover.set(0, database.getNbRows());
         return cover;
     }
 
@@ -57,10 +55,10 @@ public class Overlap extends Constraint implements IMonitorSolution {
                 .toArray();
         BitSet cover = createCover();
         for (int i : itemset) {
-            cover.and(verticalRepresentation[i]);
+            cover.and(database.getCover(i));
         }
         for (BitSet HCover : propOverlap.getCoversHistory()) {
-            if (computeJaccard(cover, HCover) > jmax) {
+            if (computeJaccard(cover, HCover, database.getWeights()) > jmax) {
                 return;
             }
         }
@@ -69,11 +67,20 @@ public class Overlap extends Constraint implements IMonitorSolution {
     }
 
     public static double computeJaccard(BitSet cov, BitSet cov2) {
+        return computeJaccard(cov, cov2, null);
+    }
+
+    /**
+     * Compute the jaccard of two covers of a database whose duplicate transactions may have been merged
+     * @param weights weight of each row (null if each row has a weight of 1)
+     * @return jaccard of the transactions of the covers
+     */
+    public static double computeJaccard(BitSet cov, BitSet cov2, int[] weights) {
         BitSet inter = (BitSet) cov.clone();
         inter.and(cov2);
         BitSet union = (BitSet) cov.clone();
         union.or(cov2);
-        return (double) inter.cardinality() / union.cardinality();
+        return (double) PropOverlap.cardinality(inter, weights) / PropOverlap.cardinality(union, weights);
     }
 
     public List<int[]> getItemsetsHistory() {
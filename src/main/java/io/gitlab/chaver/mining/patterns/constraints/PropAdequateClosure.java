@@ -20,7 +20,7 @@ import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.util.ESat;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.IntStream;
 
@@ -46,7 +46,7 @@ public abstract class PropAdequateClosure extends Propagator<BoolVar> {
         super(items);
         this.items = items;
         this.database = database;
-        this.computers = new LinkedList<>();
+        this.computers = new ArrayList<>();
         for (Measure m : measures) {
             computers.add(measureComputerFactory.getMeasureComputer(m, database, getModel()));
         }
@@ -58,15 +58,16 @@ public abstract class PropAdequateClosure extends Propagator<BoolVar> {
     }
 
     private boolean isConstant(int i) {
-        for (MeasureComputer computer : computers) {
-            if (!computer.isConstant(i)) return false;
+        // Indexed loops : no iterator is allocated in the hot paths of the propagator
+        for (int k = 0; k < computers.size(); k++) {
+            if (!computers.get(k).isConstant(i)) return false;
         }
         return true;
     }
 
     private boolean isConstant(int i, int j) {
-        for (MeasureComputer computer : computers) {
-            if (!computer.isConstant(i, j)) return false;
+        for (int k = 0; k < computers.size(); k++) {
+            if (!computers.get(k).isConstant(i, j)) return false;
         }
         return true;
     }
@@ -123,8 +124,8 @@ public abstract class PropAdequateClosure extends Propagator<BoolVar> {
     }
 
     private void computeMeasures(int idx) {
-        for (MeasureComputer computer : computers) {
-            computer.compute(idx);
+        for (int k = 0; k < computers.size(); k++) {
+            computers.get(k).compute(idx);
         }
     }
 
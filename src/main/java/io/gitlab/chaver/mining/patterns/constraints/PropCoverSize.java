@@ -10,13 +10,18 @@
 package io.gitlab.chaver.mining.patterns.constraints;
 
 import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
+import io.gitlab.chaver.mining.patterns.io.VerticalStorage;
 import io.gitlab.chaver.mining.patterns.util.BitSetFacade;
 import io.gitlab.chaver.mining.patterns.util.ConstraintSettings;
+import io.gitlab.chaver.mining.patterns.util.SparseBitSet;
 import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
 import org.chocosolver.util.ESat;
 import org.chocosolver.util.tools.ArrayUtils;
 
@@ -29,6 +34,17 @@ import static io.gitlab.chaver.mining.patterns.util.BitSetFactory.*;
 /**
  * Given a set of boolean variables x and an integer variable f, ensures that f = freq(x)
  * Fore more information, see Schaus et al. - CoverSize : A global constraint for frequency-based itemset mining
+ * The propagator is incremental : each instantiated item is removed from the free items (and added to the cover
+ * if it's set to 1) when its event is received, then the items are filtered only if the cover or freq.LB have changed
+ * since the last filtering, and the bounds of freq are computed only if the cover or the free items have changed.
+ * The changes are identified by stamps stored in reversible ints, so the state is consistent after a backtrack.
+ * When freq(x+) > freq.UB, the items are also filtered w.r.t. freq.UB : a free item i is set to 1 if
+ * freq(x+ U x* \ {i}) > freq.UB. Optionally, a pair-based lookahead examines the free items i whose
+ * freq(x+ U x* \ {i}) is the closest to freq.UB : if i is set to 0, the items j such that
+ * freq(x+ U x* \ {i, j}) > freq.UB must be set to 1, so i is set to 1 if the frequency of x+ with these items is
+ * less than freq.LB (see {@link #setLookahead(int)}). The filtering w.r.t. freq.UB only visits the non-zero words of
+ * the cover, which are copied in preallocated buffers, and the words of the items are read from the storage if the
+ * database is backed by a storage.
  */
 public class PropCoverSize extends Propagator<IntVar> {
 
@@ -36,67 +52,327 @@ public class PropCoverSize extends Propagator<IntVar> {
     private final BitSetFacade cover; // cover of x
     private final IntVar freq; // f
     private final int[] freeItems; // free items (i.e. not instanciated variables)
+    private final int[] positions; // positions[idx] = index of the item idx in freeItems
     private final IStateInt lastIndexFree; // all items between [firstIndex, lastIndexFree[ are free
     private final int firstIndex; // min index (= nb of classes of the database)
+    private final int[] counts; // counts[i] = freq(x+ U freeItems[i]) (up to freq.LB)
+    private int nextStamp = 1; // a new stamp is used for each modification of the cover or of the free items
+    private final IStateInt coverStamp; // stamp of the last modification of the cover
+    private final IStateInt stateStamp; // stamp of the last modification of the cover or of the free items
+    private final IStateInt filterStamp; // coverStamp when the items have been filtered last
+    private final IStateInt filterLB; // freq.LB when the items have been filtered last (all free items have a count >= filterLB)
+    private final IStateInt boundsStamp; // stateStamp when the bounds of freq have been computed last
+    private final TransactionalDatabase database;
+    private final int[] weights; // weight of each row (null if each row has a weight of 1)
+    // Words of the items (dataset if the database is not backed by a storage, storage otherwise), set the first time
+    // the items are filtered w.r.t. freq.UB
+    private long[][] dataset;
+    private VerticalStorage storage;
+    // The following arrays only contain the non-zero words of the cover : coverWords[k] is the word liveOffsets[k]
+    private long[] coverWords;
+    private int[] liveOffsets;
+    private int nbLive;
+    private long[] missingOnce; // rows of the cover where at least one free item is missing
+    private long[] missingTwice; // rows of the cover where at least two free items are missing
+    private long[] lookaheadCover; // cover of x+ with the items which must be set to 1 if an item is set to 0
+    private final int[] freqWithout; // freqWithout[i] = freq(x+ U x* \ {freeItems[i]})
+    private int lookahead; // number of free items examined by the pair-based lookahead
 
     public PropCoverSize(TransactionalDatabase database, IntVar freq, BoolVar[] items) {
-        super(ArrayUtils.concat(items, freq));
-        cover = getBitSet(ConstraintSettings.BITSET_TYPE, database, model);
-        this.freq = freq;
-        this.items = items;
-        this.freeItems = IntStream.range(0, database.getNbItems()).toArray();
-        this.lastIndexFree = getModel().getEnvironment().makeInt(items.length);
-        this.firstIndex = database.getNbClass();
+        this(database, freq, items, false);
     }
 
     public PropCoverSize(TransactionalDatabase database, IntVar freq, BoolVar[] items, boolean classCover) {
-        super(ArrayUtils.concat(items, freq));
+        super(ArrayUtils.concat(items, freq), PropagatorPriority.LINEAR, true);
         cover = classCover ? getBitSet1(ConstraintSettings.BITSET_TYPE, database, model) :
                 getBitSet(ConstraintSettings.BITSET_TYPE, database, model);
         this.freq = freq;
         this.items = items;
         this.freeItems = IntStream.range(0, database.getNbItems()).toArray();
+        this.positions = freeItems.clone();
         this.lastIndexFree = getModel().getEnvironment().makeInt(items.length);
         this.firstIndex = database.getNbClass();
+        this.counts = new int[database.getNbItems()];
+        this.coverStamp = getModel().getEnvironment().makeInt(0);
+        this.stateStamp = getModel().getEnvironment().makeInt(0);
+        this.filterStamp = getModel().getEnvironment().makeInt(-1);
+        this.filterLB = getModel().getEnvironment().makeInt(0);
+        this.boundsStamp = getModel().getEnvironment().makeInt(-1);
+        this.database = database;
+        this.weights = database.getWeights();
+        this.freqWithout = new int[database.getNbItems()];
+        this.lookahead = ConstraintSettings.COVER_SIZE_LOOKAHEAD;
+    }
+
+    /**
+     * Set the number of free items examined by the pair-based lookahead (the lookahead is only performed when the
+     * items are filtered w.r.t. freq.UB and when no item has been set to 1 by the filtering)
+     * @param lookahead number of free items (0 to disable the lookahead)
+     */
+    public void setLookahead(int lookahead) {
+        this.lookahead = lookahead;
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        // freq.LB filters the items w.r.t. the min frequency, freq.UB w.r.t. the max frequency
+        return vIdx < items.length ? IntEventType.instantiation() : IntEventType.boundAndInst();
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        if (idxVarInProp < items.length) {
+            int i = positions[idxVarInProp];
+            int nFree = lastIndexFree.get();
+            if (i >= firstIndex && i < nFree) {
+                lastIndexFree.set(removeItem(i, nFree, idxVarInProp));
+                if (items[idxVarInProp].isInstantiatedTo(1)) {
+                    cover.and(idxVarInProp);
+                    coverStamp.set(nextStamp);
+                }
+                stateStamp.set(nextStamp++);
+            }
+        }
+        forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
     }
 
     @Override
     public void propagate(int evtmask) throws ContradictionException {
         int nFree = lastIndexFree.get();
-        // Compute the cover of x+
-        for (int i = nFree - 1; i >= firstIndex; i--) {
-            int idx = freeItems[i];
-            if (items[idx].isInstantiated()) {
-                nFree = removeItem(i, nFree, idx);
-                if (items[idx].isInstantiatedTo(1)) {
-                    cover.and(idx);
+        if (PropagatorEventType.isFullPropagation(evtmask)) {
+            // Compute the cover of x+ (the items instantiated before the first propagation have no event)
+            for (int i = nFree - 1; i >= firstIndex; i--) {
+                int idx = freeItems[i];
+                if (items[idx].isInstantiated()) {
+                    nFree = removeItem(i, nFree, idx);
+                    if (items[idx].isInstantiatedTo(1)) {
+                        cover.and(idx);
+                    }
                 }
             }
+            coverStamp.set(nextStamp);
+            stateStamp.set(nextStamp++);
         }
-        // Remove all items i such that freq(x+ U i) < freq.LB
-        for (int i = nFree - 1; i >= firstIndex; i--) {
-            int idx = freeItems[i];
-            if (cover.andCount(idx) < freq.getLB()) {
-                nFree = removeItem(i, nFree, idx);
-                items[idx].setToFalse(this);
+        while (true) {
+            // Compute bounds of freq variable : freq.LB = freq(x+ U x*) and freq.UB = freq(x+), fails early if
+            // freq(x+ U x*) > freq.UB
+            if (boundsStamp.get() != stateStamp.get()) {
+                cover.resetMask();
+                for (int i = nFree - 1; i >= firstIndex; i--) {
+                    int idx = freeItems[i];
+                    cover.andMask(idx);
+                }
+                freq.updateBounds(cover.maskCardinality(), cover.cardinality(), this);
+                boundsStamp.set(stateStamp.get());
+            }
+            // Remove all items i such that freq(x+ U i) < freq.LB (the counts of all the free items are computed in
+            // a single pass over the cover), the free items of the last filtering still have a count >= filterLB if
+            // the cover hasn't changed
+            int freqLB = freq.getLB();
+            if (filterStamp.get() != coverStamp.get() || filterLB.get() < freqLB) {
+                int nFreeBefore = nFree;
+                cover.andCountUpTo(freeItems, firstIndex, nFree, freqLB, counts);
+                for (int i = nFree - 1; i >= firstIndex; i--) {
+                    int idx = freeItems[i];
+                    if (counts[i] < freqLB) {
+                        nFree = removeItem(i, nFree, idx);
+                        items[idx].setToFalse(this);
+                    }
+                }
+                filterStamp.set(coverStamp.get());
+                filterLB.set(freqLB);
+                if (nFree != nFreeBefore) {
+                    stateStamp.set(nextStamp++);
+                    lastIndexFree.set(nFree);
+                    continue;
+                }
             }
+            // Set to 1 the items which are required to satisfy freq.UB
+            int nFreeBefore = nFree;
+            nFree = filterUpperBound(nFree);
+            lastIndexFree.set(nFree);
+            if (nFree == nFreeBefore) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Set to 1 the free items i such that freq(x+ U x* \ {i}) > freq.UB (and the items found by the pair-based
+     * lookahead), a row of the cover of x+ is in the cover of x+ U x* \ {i} iff i is the only free item which is
+     * missing in the row
+     * @param nFree number of free items
+     * @return the new number of free items
+     */
+    private int filterUpperBound(int nFree) throws ContradictionException {
+        int freqUB = freq.getUB();
+        if (nFree == firstIndex || cover.cardinality() <= freqUB) {
+            return nFree;
+        }
+        if (coverWords == null) {
+            if (database.isBackedByStorage()) {
+                storage = database.getVerticalStorage();
+            } else {
+                dataset = database.getDatasetAsLongArray();
+            }
+            int nbWords = (database.getNbRows() + 63) >>> 6;
+            coverWords = new long[nbWords];
+            liveOffsets = new int[nbWords];
+            missingOnce = new long[nbWords];
+            missingTwice = new long[nbWords];
+            lookaheadCover = new long[nbWords];
+        }
+        nbLive = cover.copyLiveWords(coverWords, liveOffsets);
+        computeMissingItems(nFree, -1);
+        for (int k = 0; k < nbLive; k++) {
+            lookaheadCover[k] = coverWords[k] & ~missingOnce[k];
+        }
+        int freqAll = count(lookaheadCover);
+        if (freqAll > freqUB) {
+            fails();
+        }
+        int nForced = 0;
+        for (int i = firstIndex; i < nFree; i++) {
+            freqWithout[i] = freqAll + countMissingOnly(freeItems[i]);
+            if (freqWithout[i] > freqUB) {
+                nForced++;
+            }
+        }
+        if (nForced == 0 && lookahead > 0) {
+            return lookahead(nFree, freqUB);
         }
-        // Compute bounds of freq variable : freq.LB = freq(x+ U x*) and freq.UB = freq(x+)
-        cover.resetMask();
         for (int i = nFree - 1; i >= firstIndex; i--) {
+            if (freqWithout[i] > freqUB) {
+                nFree = forceItem(i, nFree);
+            }
+        }
+        return nFree;
+    }
+
+    /**
+     * Pair-based lookahead on the free items i whose freq(x+ U x* \ {i}) is the closest to freq.UB : if i is set to
+     * 0, all the items j such that freq(x+ U x* \ {i, j}) > freq.UB must be set to 1, so i is set to 1 if freq(x+ U
+     * these items) < freq.LB
+     */
+    private int lookahead(int nFree, int freqUB) throws ContradictionException {
+        int freqLB = freq.getLB();
+        int nbExamined = Math.min(lookahead, nFree - firstIndex);
+        for (int n = 0; n < nbExamined; n++) {
+            // The free items are sorted by decreasing freqWithout, the first ones are the tightest
+            int best = firstIndex + n;
+            for (int i = best + 1; i < nFree; i++) {
+                if (freqWithout[i] > freqWithout[best]) {
+                    best = i;
+                }
+            }
+            swapFreeItems(firstIndex + n, best);
+        }
+        for (int p = firstIndex; p < firstIndex + nbExamined; p++) {
+            int idx = freeItems[p];
+            computeMissingItems(nFree, idx);
+            System.arraycopy(coverWords, 0, lookaheadCover, 0, nbLive);
+            boolean required = false;
+            for (int i = firstIndex; i < nFree; i++) {
+                int idx2 = freeItems[i];
+                if (idx2 != idx && freqWithout[p] + countMissingOnly(idx2) > freqUB) {
+                    required = true;
+                    for (int k = 0; k < nbLive; k++) {
+                        lookaheadCover[k] &= itemWord(idx2, liveOffsets[k]);
+                    }
+                }
+            }
+            if (required && count(lookaheadCover) < freqLB) {
+                return forceItem(p, nFree);
+            }
+        }
+        return nFree;
+    }
+
+    /**
+     * Compute the rows of the cover where at least one (missingOnce) and at least two (missingTwice) free items are
+     * missing
+     * @param excluded item which is not considered as free (-1 if there is none)
+     */
+    private void computeMissingItems(int nFree, int excluded) {
+        for (int k = 0; k < nbLive; k++) {
+            missingOnce[k] = 0;
+            missingTwice[k] = 0;
+        }
+        for (int i = firstIndex; i < nFree; i++) {
             int idx = freeItems[i];
-            cover.andMask(idx);
+            if (idx == excluded) {
+                continue;
+            }
+            for (int k = 0; k < nbLive; k++) {
+                long missing = coverWords[k] & ~itemWord(idx, liveOffsets[k]);
+                missingTwice[k] |= missingOnce[k] & missing;
+                missingOnce[k] |= missing;
+            }
+        }
+    }
+
+    /**
+     * @return the frequency of the rows of the cover where idx is the only free item which is missing
+     */
+    private int countMissingOnly(int idx) {
+        int sum = 0;
+        for (int k = 0; k < nbLive; k++) {
+            int offset = liveOffsets[k];
+            sum += SparseBitSet.count(weights, offset, missingOnce[k] & ~missingTwice[k] & ~itemWord(idx, offset));
         }
-        int freqLB = cover.maskCardinality();
-        int freqUB = cover.cardinality();
-        freq.updateBounds(freqLB, freqUB, this);
-        lastIndexFree.set(nFree);
+        return sum;
+    }
+
+    /**
+     * @return the word of the cover of the item idx at the given offset
+     */
+    private long itemWord(int idx, int offset) {
+        return dataset != null ? dataset[idx][offset] : storage.getWord(idx, offset);
+    }
+
+    /**
+     * Set the free item at position i to 1 and add it to the cover
+     * @return the new number of free items
+     */
+    private int forceItem(int i, int nFree) throws ContradictionException {
+        int idx = freeItems[i];
+        items[idx].setToTrue(this);
+        nFree = removeItem(i, nFree, idx);
+        cover.and(idx);
+        coverStamp.set(nextStamp);
+        stateStamp.set(nextStamp++);
+        return nFree;
+    }
+
+    /**
+     * @param words non-zero words of the cover (words[k] is the word liveOffsets[k])
+     */
+    private int count(long[] words) {
+        int sum = 0;
+        for (int k = 0; k < nbLive; k++) {
+            sum += SparseBitSet.count(weights, liveOffsets[k], words[k]);
+        }
+        return sum;
+    }
+
+    private void swapFreeItems(int i, int j) {
+        int idx = freeItems[i];
+        freeItems[i] = freeItems[j];
+        positions[freeItems[i]] = i;
+        freeItems[j] = idx;
+        positions[idx] = j;
+        int without = freqWithout[i];
+        freqWithout[i] = freqWithout[j];
+        freqWithout[j] = without;
     }
 
     private int removeItem(int i, int nFree, int idx) {
         int lastFree = nFree - 1;
-        freeItems[i] = freeItems[lastFree];
+        int lastIdx = freeItems[lastFree];
+        freeItems[i] = lastIdx;
+        positions[lastIdx] = i;
         freeItems[lastFree] = idx;
+        positions[idx] = lastFree;
         return lastFree;
     }
 
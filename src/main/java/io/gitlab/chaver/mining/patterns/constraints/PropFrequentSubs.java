@@ -10,85 +10,139 @@
 package io.gitlab.chaver.mining.patterns.constraints;
 
 import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
-import io.gitlab.chaver.mining.patterns.util.SparseBitSet;
+import io.gitlab.chaver.mining.patterns.util.BitSetFacade;
+import io.gitlab.chaver.mining.patterns.util.ConstraintSettings;
+import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Propagator;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
 import org.chocosolver.util.ESat;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.stream.IntStream;
+
+import static io.gitlab.chaver.mining.patterns.util.BitSetFactory.getBitSet;
 
 
 /**
  * Given a vector x of Boolean variables and a threshold freq, ensures that all the subsets of x are frequent w.r.t. freq
  * Fore more information, see Belaid et al. - Constraint Programming for Mining Borders of Frequent Itemsets
- *
+ * The cover of x+ and the sub-covers (i.e. the cover of x+ \ {j} for each j in x+) are reversible and updated
+ * incrementally : when an item becomes present, it's added to the cover and to the sub-covers of the other present
+ * items, and its sub-cover is the cover of the items which were already present. The items are filtered only when
+ * x+ has changed.
  */
 public class PropFrequentSubs extends Propagator<IntVar> {
 
-    private BoolVar[] x;
-    private int freq;
-    private TransactionalDatabase database;
-    private long[][] dataset;
+    private final BoolVar[] x;
+    private final int freq;
+    private final TransactionalDatabase database;
+    private final BitSetFacade cover; // cover of x+
+    private final BitSetFacade[] subCovers; // subCovers[j] = cover of x+ \ {presentItems[j]} (created lazily)
+    private final int[] freeItems; // free items (i.e. not instanciated variables)
+    private final IStateInt lastIndexFree; // all items between [firstIndex, lastIndexFree[ are free
+    private final int[] presentItems; // items between [firstIndex, lastIndexPresent[ are present, in insertion order
+    private final IStateInt lastIndexPresent;
+    private final int firstIndex; // min index (= nb of classes of the database)
+    private final int[] candidates;
+    private final int[] counts;
 
     public PropFrequentSubs(TransactionalDatabase database, int freq, BoolVar[] x) {
         super(x);
         this.freq = freq;
         this.x = x;
         this.database = database;
-        dataset = database.getDatasetAsLongArray();
-    }
-
-    private SparseBitSet createCover() {
-        return new SparseBitSet(database.getNbTransactions());
+        this.cover = getBitSet(ConstraintSettings.BITSET_TYPE, database, getModel());
+        this.subCovers = new BitSetFacade[database.getNbItems()];
+        this.freeItems = IntStream.range(0, database.getNbItems()).toArray();
+        this.lastIndexFree = getModel().getEnvironment().makeInt(x.length);
+        this.firstIndex = database.getNbClass();
+        this.presentItems = freeItems.clone();
+        this.lastIndexPresent = getModel().getEnvironment().makeInt(firstIndex);
+        this.candidates = new int[database.getNbItems()];
+        this.counts = new int[database.getNbItems()];
     }
 
     @Override
     public void propagate(int evtmask) throws ContradictionException {
-        SparseBitSet cover = createCover();
-        Set<Integer> presentItems = new HashSet<>();
-        Set<Integer> freeItems = new HashSet<>();
-        for (int i = database.getNbClass(); i < database.getNbItems(); i++) {
-            if (x[i].isInstantiatedTo(1)) {
-                presentItems.add(i);
-                cover.and(dataset[i]);
-            }
-            if (!x[i].isInstantiated()) {
-                freeItems.add(i);
-            }
-        }
-        Map<Integer, SparseBitSet> subcovers = new HashMap<>();
-        for (int i : presentItems) {
-            SparseBitSet subcover = createCover();
-            for (int j : presentItems) {
-                if (j != i) {
-                    subcover.and(dataset[j]);
+        int nFree = lastIndexFree.get();
+        int nPresBefore = lastIndexPresent.get();
+        int nPres = nPresBefore;
+        for (int i = nFree - 1; i >= firstIndex; i--) {
+            int idx = freeItems[i];
+            if (x[idx].isInstantiated()) {
+                nFree = removeItem(i, nFree, idx);
+                if (x[idx].isInstantiatedTo(1)) {
+                    nPres = addItem(nPres, idx);
                 }
             }
-            if (subcover.cardinality() < freq) {
+        }
+        lastIndexFree.set(nFree);
+        lastIndexPresent.set(nPres);
+        // The remaining free items have already been filtered if x+ hasn't changed
+        if (nPres == nPresBefore && !PropagatorEventType.isFullPropagation(evtmask)) {
+            return;
+        }
+        for (int j = firstIndex; j < nPres; j++) {
+            if (subCovers[j].cardinality() < freq) {
                 fails();
             }
-            subcovers.put(i, subcover);
         }
         if (cover.cardinality() < freq) {
-            for (int i : freeItems) {
-                x[i].setToFalse(this);
+            for (int i = nFree - 1; i >= firstIndex; i--) {
+                x[freeItems[i]].setToFalse(this);
             }
+            lastIndexFree.set(firstIndex);
+            return;
         }
-        for (int i : freeItems) {
-            if (cover.andCount(dataset[i]) < freq) {
-                for (int j : presentItems) {
-                    if (subcovers.get(j).andCount(dataset[i]) < freq) {
-                        x[i].setToFalse(this);
-                        break;
-                    }
+        // Candidates : free items i such that freq(x+ U i) < freq, the counts of all the free items are computed in a
+        // single pass over the cover
+        cover.andCountUpTo(freeItems, firstIndex, nFree, freq, counts);
+        int nCandidates = 0;
+        for (int i = firstIndex; i < nFree; i++) {
+            if (counts[i] < freq) {
+                candidates[nCandidates++] = freeItems[i];
+            }
+        }
+        // Remove the candidates i such that there exists j in x+ with freq(x+ \ j U i) < freq
+        for (int j = firstIndex; j < nPres && nCandidates > 0; j++) {
+            subCovers[j].andCountUpTo(candidates, 0, nCandidates, freq, counts);
+            int nRemaining = 0;
+            for (int k = 0; k < nCandidates; k++) {
+                if (counts[k] < freq) {
+                    x[candidates[k]].setToFalse(this);
+                } else {
+                    candidates[nRemaining++] = candidates[k];
                 }
             }
+            nCandidates = nRemaining;
+        }
+    }
+
+    /**
+     * Add a present item : its sub-cover is the cover of the present items, then it's added to the cover and to the
+     * sub-covers of the other present items
+     */
+    private int addItem(int nPres, int idx) {
+        if (subCovers[nPres] == null) {
+            subCovers[nPres] = getBitSet(ConstraintSettings.BITSET_TYPE, database, getModel());
+        }
+        // The sub-cover at position nPres is full since this position is empty
+        for (int j = firstIndex; j < nPres; j++) {
+            subCovers[nPres].and(presentItems[j]);
+            subCovers[j].and(idx);
         }
+        cover.and(idx);
+        presentItems[nPres] = idx;
+        return nPres + 1;
+    }
+
+    private int removeItem(int i, int nFree, int idx) {
+        int lastFree = nFree - 1;
+        freeItems[i] = freeItems[lastFree];
+        freeItems[lastFree] = idx;
+        return lastFree;
     }
 
     @Override
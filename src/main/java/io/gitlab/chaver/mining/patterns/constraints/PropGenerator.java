@@ -12,16 +12,14 @@ package io.gitlab.chaver.mining.patterns.constraints;
 import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
 import io.gitlab.chaver.mining.patterns.util.BitSetFacade;
 import io.gitlab.chaver.mining.patterns.util.ConstraintSettings;
-import io.gitlab.chaver.mining.patterns.util.SparseBitSet;
 import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Propagator;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
 import org.chocosolver.util.ESat;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.stream.IntStream;
 
 import static io.gitlab.chaver.mining.patterns.util.BitSetFactory.getBitSet;
@@ -31,37 +29,47 @@ import static io.gitlab.chaver.mining.patterns.util.BitSetFactory.getBitSet;
  * Given a set of boolean variables x, ensures that x is a generator
  * (i.e. there exists no item i \in x such that freq(x \ {i}) = freq(x))
  * Fore more information, see Belaid et al. - Constraint programming for association rules
+ * The cover of x+ and the sub-covers (i.e. the cover of x+ \ {j} for each j in x+) are reversible and updated
+ * incrementally : when an item becomes present, it's added to the cover and to the sub-covers of the other present
+ * items, and its sub-cover is the cover of the items which were already present. The items are filtered only when
+ * x+ has changed.
  */
 public class PropGenerator extends Propagator<BoolVar> {
 
     private final BoolVar[] items;
     private final TransactionalDatabase database;
-    private final long[][] dataset;
-    private final BitSetFacade cover;
-    private final Map<Integer, SparseBitSet> subCovers = new HashMap<>();
-    private final int[] freeItems;
-    private final IStateInt lastIndexFree;
-    private final int[] presentItems;
+    private final BitSetFacade cover; // cover of x+
+    private final BitSetFacade[] subCovers; // subCovers[j] = cover of x+ \ {presentItems[j]} (created lazily)
+    private final int[] freeItems; // free items (i.e. not instanciated variables)
+    private final IStateInt lastIndexFree; // all items between [firstIndex, lastIndexFree[ are free
+    private final int[] presentItems; // items between [firstIndex, lastIndexPresent[ are present, in insertion order
     private final IStateInt lastIndexPresent;
-    private final int firstIndex;
+    private final int firstIndex; // min index (= nb of classes of the database)
+    private final int[] counts;
+    private final int[] candidates;
+    private final int[] candidateCounts; // candidateCounts[k] = freq(x+ U {candidates[k]})
 
     public PropGenerator(TransactionalDatabase database, BoolVar[] items) {
         super(items);
         this.items = items;
         this.database = database;
-        this.dataset = database.getDatasetAsLongArray();
         this.cover = getBitSet(ConstraintSettings.BITSET_TYPE, database, getModel());
+        this.subCovers = new BitSetFacade[database.getNbItems()];
         this.freeItems = IntStream.range(0, database.getNbItems()).toArray();
         this.lastIndexFree = getModel().getEnvironment().makeInt(items.length);
         this.firstIndex = database.getNbClass();
         this.presentItems = freeItems.clone();
         this.lastIndexPresent = getModel().getEnvironment().makeInt(firstIndex);
+        this.counts = new int[database.getNbItems()];
+        this.candidates = new int[database.getNbItems()];
+        this.candidateCounts = new int[database.getNbItems()];
     }
 
     @Override
     public void propagate(int evtmask) throws ContradictionException {
         int nFree = lastIndexFree.get();
-        int nPres = lastIndexPresent.get();
+        int nPresBefore = lastIndexPresent.get();
+        int nPres = nPresBefore;
         // Compute cover and free/present items
         for (int i = nFree - 1; i >= firstIndex; i--) {
             int idx = freeItems[i];
@@ -69,46 +77,59 @@ public class PropGenerator extends Propagator<BoolVar> {
                 nFree = removeItem(i, nFree, idx);
                 if (items[idx].isInstantiatedTo(1)) {
                     nPres = addItem(nPres, idx);
-                    cover.and(idx);
                 }
             }
         }
-        // compute subcovers
+        lastIndexFree.set(nFree);
+        lastIndexPresent.set(nPres);
+        // The remaining free items have already been filtered if x+ hasn't changed
+        if (nPres == nPresBefore && !PropagatorEventType.isFullPropagation(evtmask)) {
+            return;
+        }
         int coverSize = cover.cardinality();
-        for (int j = nPres - 1; j >= firstIndex ; j--) {
-            int idx = presentItems[j];
-            subCovers.put(idx, new SparseBitSet(database.getNbTransactions()));
-            SparseBitSet subCover = subCovers.get(idx);
-            for (int i = nPres - 1; i >= firstIndex ; i--) {
-                if (j != i) {
-                    int idx2 = presentItems[i];
-                    subCover.and(dataset[idx2]);
-                }
-            }
+        for (int j = firstIndex; j < nPres; j++) {
             // fails if exists proper subset with the same cover
-            if (subCover.cardinality() == coverSize) fails();
+            if (subCovers[j].cardinality() == coverSize) fails();
         }
         // remove all items that do not lead to a generator
-        for (int i = nFree - 1; i >= firstIndex; i--) {
+        cover.andCount(freeItems, firstIndex, nFree, counts);
+        int nCandidates = 0;
+        int maxCount = 0;
+        for (int i = firstIndex; i < nFree; i++) {
             int idx = freeItems[i];
-            if (isGenerator(idx, coverSize, nPres)) {
-                nFree = removeItem(i, nFree, idx);
+            if (counts[i] == coverSize) {
                 items[idx].setToFalse(this);
+            } else {
+                candidates[nCandidates] = idx;
+                candidateCounts[nCandidates++] = counts[i];
+                maxCount = Math.max(maxCount, counts[i]);
             }
         }
-        lastIndexFree.set(nFree);
-        lastIndexPresent.set(nPres);
+        for (int j = firstIndex; j < nPres && nCandidates > 0; j++) {
+            nCandidates = filterGenerators(subCovers[j], nCandidates, maxCount);
+        }
     }
 
-    private boolean isGenerator(int idx, int coverSize, int nPos) {
-        int intersectionSize = cover.andCount(idx);
-        if (coverSize == intersectionSize) {
-            return true;
-        }
-        for (int j = firstIndex; j < nPos; j++) {
-            if (subCovers.get(presentItems[j]).andCount(dataset[idx]) == intersectionSize) return true;
+    /**
+     * Remove the candidates i such that freq(x+ \ {j} U {i}) = freq(x+ U {i}), the counts of all the candidates are
+     * computed in a single pass over the sub-cover of j
+     * @param subCover cover of x+ \ {j}
+     * @param maxCount max freq(x+ U {i}) of the candidates
+     * @return number of remaining candidates
+     */
+    private int filterGenerators(BitSetFacade subCover, int nCandidates, int maxCount) throws ContradictionException {
+        // The subcover contains the cover : the counts are equal iff the subcover count is at most freq(x+ U {i})
+        subCover.andCountUpTo(candidates, 0, nCandidates, maxCount + 1, counts);
+        int nRemaining = 0;
+        for (int k = 0; k < nCandidates; k++) {
+            if (counts[k] == candidateCounts[k]) {
+                items[candidates[k]].setToFalse(this);
+            } else {
+                candidates[nRemaining] = candidates[k];
+                candidateCounts[nRemaining++] = candidateCounts[k];
+            }
         }
-        return false;
+        return nRemaining;
     }
 
     private int removeItem(int i, int nFree, int idx) {
@@ -118,7 +139,20 @@ public class PropGenerator extends Propagator<BoolVar> {
         return lastFree;
     }
 
+    /**
+     * Add a present item : its sub-cover is the cover of the present items, then it's added to the cover and to the
+     * sub-covers of the other present items
+     */
     private int addItem(int nPos, int idx) {
+        if (subCovers[nPos] == null) {
+            subCovers[nPos] = getBitSet(ConstraintSettings.BITSET_TYPE, database, getModel());
+        }
+        // The sub-cover at position nPos is full since this position is empty
+        for (int j = firstIndex; j < nPos; j++) {
+            subCovers[nPos].and(presentItems[j]);
+            subCovers[j].and(idx);
+        }
+        cover.and(idx);
         presentItems[nPos] = idx;
         return nPos + 1;
     }
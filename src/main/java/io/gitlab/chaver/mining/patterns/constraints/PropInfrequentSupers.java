@@ -10,96 +10,232 @@
 package io.gitlab.chaver.mining.patterns.constraints;
 
 import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
+import io.gitlab.chaver.mining.patterns.io.VerticalStorage;
+import io.gitlab.chaver.mining.patterns.util.BitSetFacade;
+import io.gitlab.chaver.mining.patterns.util.BitSetFactory;
+import io.gitlab.chaver.mining.patterns.util.ConstraintSettings;
 import io.gitlab.chaver.mining.patterns.util.SparseBitSet;
+import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Propagator;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
 import org.chocosolver.util.ESat;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * Given a vector of Boolean variables x and a threshold freq, ensures that all the supersets of x are infrequent w.r.t. freq
  * Fore more information, see Belaid et al. - Constraint Programming for Mining Borders of Frequent Itemsets
+ * The free, present and absent items are stored in index arrays with reversible limits. The deductions only depend on
+ * x+ U x* and on the absent items, so the items are filtered only when new items are absent. The cover of x+ is
+ * maintained in a reversible bitset (see {@link BitSetFactory}) which is updated with the items set to 1 when they are
+ * removed from the free items, as in {@link PropCoverSize}. The cover of x+ U x* and the covers of x+ U x* \ {i} for
+ * each free item i are computed with prefix/suffix products over the free items, restricted to the non-zero words of
+ * the cover of x+. To keep the memory in O(sqrt(|x*|) * words), the suffix
+ * products are stored only at the start of each block of sqrt(|x*|) free items, the suffix products inside a block are
+ * computed when the block is visited. The words of the items are read from the storage if the database is backed by a
+ * storage.
  */
 public class PropInfrequentSupers extends Propagator<IntVar> {
 
-    private BoolVar[] x;
-    private int freq;
-    private TransactionalDatabase database;
-    private long[][] dataset;
+    private final BoolVar[] x;
+    private final int freq;
+    private final int[] weights; // weight of each row (null if each row has a weight of 1)
+    private final long[][] dataset; // words of the items (null if the database is backed by a storage)
+    private final VerticalStorage storage; // storage of the database (null if it isn't backed by a storage)
+    private final int[] freeItems; // free items (i.e. not instanciated variables)
+    private final IStateInt lastIndexFree; // all items between [firstIndex, lastIndexFree[ are free
+    private final BitSetFacade cover; // cover of x+
+    private final int[] absentItems; // items between [firstIndex, lastIndexAbsent[ are absent
+    private final IStateInt lastIndexAbsent;
+    private final int firstIndex; // min index (= nb of classes of the database)
+    private final int[] liveOffsets; // offsets of the non-zero words of the cover of x+
+    private final long[] prefix; // prefix[k] = word liveOffsets[k] of the cover of x+ and the free items examined so far
+    private final long[] leaveOneOut; // cover of x+ U x* \ {i} (only the non-zero words of the cover of x+)
+    private long[][] blockSuffixes; // blockSuffixes[b][k] = word liveOffsets[k] of the cover of the free items of the blocks [b, nbBlocks[
+    private long[][] suffixes; // suffixes[j][k] = word liveOffsets[k] of the cover of the free items [start + j, nFree[ (start = first item of the visited block)
 
     public PropInfrequentSupers(TransactionalDatabase database, int freq, BoolVar[] x) {
         super(x);
         this.freq = freq;
         this.x = x;
-        this.database = database;
-        dataset = database.getDatasetAsLongArray();
+        this.weights = database.getWeights();
+        this.storage = database.isBackedByStorage() ? database.getVerticalStorage() : null;
+        this.dataset = storage == null ? database.getDatasetAsLongArray() : null;
+        int nbWords = (database.getNbRows() + 63) >>> 6;
+        this.freeItems = IntStream.range(0, database.getNbItems()).toArray();
+        this.lastIndexFree = getModel().getEnvironment().makeInt(x.length);
+        this.firstIndex = database.getNbClass();
+        this.cover = BitSetFactory.getBitSet(ConstraintSettings.BITSET_TYPE, database, getModel());
+        this.absentItems = freeItems.clone();
+        this.lastIndexAbsent = getModel().getEnvironment().makeInt(firstIndex);
+        this.liveOffsets = new int[nbWords];
+        this.prefix = new long[nbWords];
+        this.leaveOneOut = new long[nbWords];
     }
 
-    private SparseBitSet createCover() {
-        return new SparseBitSet(database.getNbTransactions());
-    }
-
-    private SparseBitSet computeCover2(Set<Integer> presentItems, Set<Integer> freeItems, int i) {
-        SparseBitSet cover = createCover();
-        for (int j : presentItems) {
-            cover.and(dataset[j]);
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        int nFree = lastIndexFree.get();
+        int nAbsBefore = lastIndexAbsent.get();
+        int nAbs = nAbsBefore;
+        for (int i = nFree - 1; i >= firstIndex; i--) {
+            int idx = freeItems[i];
+            if (x[idx].isInstantiated()) {
+                nFree = removeItem(i, nFree, idx);
+                if (x[idx].isInstantiatedTo(1)) {
+                    cover.and(idx);
+                } else {
+                    absentItems[nAbs++] = idx;
+                }
+            }
+        }
+        lastIndexFree.set(nFree);
+        lastIndexAbsent.set(nAbs);
+        // x+ U x* and the absent items haven't changed : the deductions are the same
+        if (nAbs == nAbsBefore && !PropagatorEventType.isFullPropagation(evtmask)) {
+            return;
+        }
+        // prefix = cover of x+ (only its non-zero words are kept)
+        int nLive = cover.copyLiveWords(prefix, liveOffsets);
+        int nbFree = nFree - firstIndex;
+        int blockSize = (int) Math.ceil(Math.sqrt(nbFree));
+        int nbBlocks = nbFree == 0 ? 0 : (nbFree + blockSize - 1) / blockSize;
+        computeBlockSuffixes(nFree, nLive, blockSize, nbBlocks);
+        // prefix AND blockSuffixes[0] = cover of x+ U x*
+        computeLeaveOneOut(nbBlocks > 0 ? blockSuffixes[0] : null, nLive);
+        if (count(leaveOneOut, nLive) >= freq) {
+            for (int j = firstIndex; j < nAbs; j++) {
+                if (andCountAtLeast(leaveOneOut, nLive, absentItems[j])) {
+                    fails();
+                }
+            }
         }
-        for (int j : freeItems) {
-            if (j != i) {
-                cover.and(dataset[j]);
+        for (int b = 0; b < nbBlocks; b++) {
+            int start = firstIndex + b * blockSize;
+            int end = Math.min(start + blockSize, nFree);
+            long[] nextBlock = b + 1 < nbBlocks ? blockSuffixes[b + 1] : null;
+            computeSuffixes(start, end, nextBlock, nLive);
+            // For each free item i, leaveOneOut = cover of x+ U x* \ {i} = prefix AND suffix of i + 1
+            for (int i = start; i < end; i++) {
+                int idx = freeItems[i];
+                computeLeaveOneOut(i + 1 < end ? suffixes[i + 1 - start] : nextBlock, nLive);
+                if (count(leaveOneOut, nLive) >= freq) {
+                    boolean required = andCountAtLeast(leaveOneOut, nLive, idx);
+                    for (int j = firstIndex; j < nAbs && !required; j++) {
+                        required = andCountAtLeast(leaveOneOut, nLive, absentItems[j]);
+                    }
+                    if (required) {
+                        x[idx].setToTrue(this);
+                    }
+                }
+                for (int k = 0; k < nLive; k++) {
+                    prefix[k] &= itemWord(idx, liveOffsets[k]);
+                }
             }
         }
-        return cover;
     }
 
-    private Set<Integer> unionSet(Set<Integer> items, int i) {
-        Set<Integer> union = new HashSet<>(items);
-        union.add(i);
-        return union;
+    /**
+     * Compute the suffix products of the blocks of free items over the non-zero words of the cover of x+
+     */
+    private void computeBlockSuffixes(int nFree, int nLive, int blockSize, int nbBlocks) {
+        blockSuffixes = ensureCapacity(blockSuffixes, nbBlocks, nLive);
+        for (int b = nbBlocks - 1; b >= 0; b--) {
+            int start = firstIndex + b * blockSize;
+            int end = Math.min(start + blockSize, nFree);
+            long[] words = blockSuffixes[b];
+            for (int k = 0; k < nLive; k++) {
+                long word = b + 1 < nbBlocks ? blockSuffixes[b + 1][k] : -1L;
+                for (int i = start; i < end && word != 0; i++) {
+                    word &= itemWord(freeItems[i], liveOffsets[k]);
+                }
+                words[k] = word;
+            }
+        }
     }
 
-    @Override
-    public void propagate(int evtmask) throws ContradictionException {
-        SparseBitSet cover = createCover();
-        Set<Integer> presentItems = new HashSet<>();
-        Set<Integer> absentItems = new HashSet<>();
-        Set<Integer> freeItems = new HashSet<>();
-        for (int i = database.getNbClass(); i < database.getNbItems(); i++) {
-            if (x[i].isInstantiatedTo(1)) {
-                cover.and(dataset[i]);
-                presentItems.add(i);
+    /**
+     * Compute the suffix products of the free items [start, end[ of a block
+     * @param nextBlock suffix product of the next block (null if it is the last block)
+     */
+    private void computeSuffixes(int start, int end, long[] nextBlock, int nLive) {
+        suffixes = ensureCapacity(suffixes, end - start, nLive);
+        for (int i = end - 1; i >= start; i--) {
+            long[] words = suffixes[i - start];
+            long[] next = i + 1 < end ? suffixes[i + 1 - start] : nextBlock;
+            int idx = freeItems[i];
+            for (int k = 0; k < nLive; k++) {
+                long word = itemWord(idx, liveOffsets[k]);
+                words[k] = next != null ? word & next[k] : word;
             }
-            if (x[i].isInstantiatedTo(0)) {
-                absentItems.add(i);
-            }
-            if (!x[i].isInstantiated()) {
-                cover.and(dataset[i]);
-                freeItems.add(i);
+        }
+    }
+
+    /**
+     * leaveOneOut = prefix AND suffix
+     * @param suffix suffix product (null if there is no item after the current item)
+     */
+    private void computeLeaveOneOut(long[] suffix, int nLive) {
+        if (suffix != null) {
+            for (int k = 0; k < nLive; k++) {
+                leaveOneOut[k] = prefix[k] & suffix[k];
             }
+        } else {
+            System.arraycopy(prefix, 0, leaveOneOut, 0, nLive);
         }
-        if (cover.cardinality() >= freq) {
-            for (int j : absentItems) {
-                if (cover.andCount(dataset[j]) >= freq) {
-                    fails();
-                }
+    }
+
+    /**
+     * @return buffers with at least n arrays of at least length words (the buffers are reused if they are large enough)
+     */
+    private static long[][] ensureCapacity(long[][] buffers, int n, int length) {
+        if (buffers == null || buffers.length < n) {
+            buffers = buffers == null ? new long[n][] : Arrays.copyOf(buffers, n);
+        }
+        for (int i = 0; i < n; i++) {
+            if (buffers[i] == null || buffers[i].length < length) {
+                buffers[i] = new long[length];
             }
         }
-        for (int i : freeItems) {
-            SparseBitSet cover2 = computeCover2(presentItems, freeItems, i);
-            if (cover2.cardinality() >= freq) {
-                Set<Integer> union = unionSet(absentItems, i);
-                for (int j : union) {
-                    if (cover2.andCount(dataset[j]) >= freq) {
-                        x[i].setToTrue(this);
-                        break;
-                    }
-                }
+        return buffers;
+    }
+
+    private long itemWord(int idx, int offset) {
+        return dataset != null ? dataset[idx][offset] : storage.getWord(idx, offset);
+    }
+
+    private int count(long[] words, int nLive) {
+        int sum = 0;
+        for (int k = 0; k < nLive; k++) {
+            sum += SparseBitSet.count(weights, liveOffsets[k], words[k]);
+        }
+        return sum;
+    }
+
+    /**
+     * @return true if the frequency of the rows of words which contain the item idx is at least freq
+     */
+    private boolean andCountAtLeast(long[] words, int nLive, int idx) {
+        int sum = 0;
+        for (int k = 0; k < nLive; k++) {
+            int offset = liveOffsets[k];
+            sum += SparseBitSet.count(weights, offset, words[k] & itemWord(idx, offset));
+            if (sum >= freq) {
+                return true;
             }
         }
+        return false;
+    }
+
+    private int removeItem(int i, int nFree, int idx) {
+        int lastFree = nFree - 1;
+        freeItems[i] = freeItems[lastFree];
+        freeItems[lastFree] = idx;
+        return lastFree;
     }
 
     @Override
@@ -23,11 +23,14 @@ import java.util.*;
  * Given a transactional database, a vector of boolean variables x, a jaccard diversity threshold jmax and
  * a min frequency threshold theta, ensures that there exists no itemset y in the history such that
  * jaccard(x,y) &gt; jmax
+ * If duplicate transactions of the database have been merged, the cardinalities of the covers are the sums of the weights
+ * of their rows, i.e. the jaccard is computed on the original transactions.
  */
 public class PropOverlap extends Propagator<IntVar> {
 
     private TransactionalDatabase database;
-    private BitSet[] verticalRepresentation;
+    /** Weight of each row (null if each row has a weight of 1) */
+    private int[] weights;
     private BoolVar[] x;
     private double jmax;
     private int theta;
@@ -39,15 +42,15 @@ public class PropOverlap extends Propagator<IntVar> {
     public PropOverlap(TransactionalDatabase database, BoolVar[] x, double jmax, int theta) {
         super(x);
         this.database = database;
-        this.verticalRepresentation = database.getVerticalRepresentation();
+        this.weights = database.getWeights();
         this.x = x;
         this.jmax = jmax;
         this.theta = theta;
     }
 
     private BitSet createCover() {
-        BitSet cover = new BitSet(database.getNbTransactions());
-        cover.set(0, database.getNbTransactions());
+        BitSet cover = new BitSet(database.getNbRows());
+        cover.set(0, database.getNbRows());
         return cover;
     }
 
@@ -60,8 +63,9 @@ public class PropOverlap extends Propagator<IntVar> {
     private double LBJaccard(BitSet xCover, BitSet HCover) {
         BitSet inter = (BitSet) xCover.clone();
         inter.and(HCover);
-        int properCoverCardinality = xCover.cardinality() - inter.cardinality();
-        return (double) (theta - properCoverCardinality) / (xCover.cardinality() + HCover.cardinality() + properCoverCardinality - theta);
+        int xCardinality = cardinality(xCover, weights);
+        int properCoverCardinality = xCardinality - cardinality(inter, weights);
+        return (double) (theta - properCoverCardinality) / (xCardinality + cardinality(HCover, weights) + properCoverCardinality - theta);
         //return (double) (theta - (properCoverCardinality)) / Math.min(xCover.cardinality(), HCover.cardinality());
     }
 
@@ -80,7 +84,7 @@ public class PropOverlap extends Propagator<IntVar> {
         Set<Integer> freeItems = new HashSet<>();
         for (int i = 0; i < database.getNbItems(); i++) {
             if (x[i].isInstantiatedTo(1)) {
-                xCover.and(verticalRepresentation[i]);
+                xCover.and(database.getCover(i));
             }
             if (!x[i].isInstantiated()) {
                 freeItems.add(i);
@@ -91,12 +95,28 @@ public class PropOverlap extends Propagator<IntVar> {
             fails();
         }
         for (int i : freeItems) {
-            if (!PGrowthLB(computeCoverUnion(xCover, verticalRepresentation[i]))) {
+            if (!PGrowthLB(computeCoverUnion(xCover, database.getCover(i)))) {
                 x[i].setToFalse(this);
             }
         }
     }
 
+    /**
+     * @param cover cover
+     * @param weights weight of each row (null if each row has a weight of 1)
+     * @return number of transactions of the cover
+     */
+    static int cardinality(BitSet cover, int[] weights) {
+        if (weights == null) {
+            return cover.cardinality();
+        }
+        int sum = 0;
+        for (int r = cover.nextSetBit(0); r >= 0; r = cover.nextSetBit(r + 1)) {
+            sum += weights[r];
+        }
+        return sum;
+    }
+
     @Override
     public ESat isEntailed() {
         return ESat.UNDEFINED;
@@ -0,0 +1,94 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Build the vertical representation of a database incrementally : the words of each column (i.e. item) grow
+ * while the transactions are read, so the number of items and transactions doesn't need to be known in advance.
+ */
+public class ColumnBuilder {
+
+    private static final long[] EMPTY = new long[0];
+
+    /** Words of each column */
+    private long[][] columns;
+    /** Number of columns */
+    private int nbColumns;
+
+    public ColumnBuilder() {
+        this(64);
+    }
+
+    public ColumnBuilder(int expectedColumns) {
+        columns = new long[Math.max(expectedColumns, 1)][];
+    }
+
+    /**
+     * Set the bit of the given transaction in the column (the column is created if it doesn't exist)
+     * @param column index of the column
+     * @param transaction index of the transaction
+     */
+    public void set(int column, int transaction) {
+        if (column >= nbColumns) {
+            addColumns(column + 1);
+        }
+        int wordIndex = transaction >>> 6;
+        long[] words = columns[column];
+        if (wordIndex >= words.length) {
+            words = Arrays.copyOf(words, Math.max(wordIndex + 1, words.length * 2));
+            columns[column] = words;
+        }
+        words[wordIndex] |= 1L << transaction;
+    }
+
+    private void addColumns(int newNbColumns) {
+        if (newNbColumns > columns.length) {
+            columns = Arrays.copyOf(columns, Math.max(newNbColumns, columns.length * 2));
+        }
+        for (int i = nbColumns; i < newNbColumns; i++) {
+            columns[i] = EMPTY;
+        }
+        nbColumns = newNbColumns;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getNbColumns() {
+        return nbColumns;
+    }
+
+    /**
+     * Words of the column (the array can be longer than the number of words which contain transactions)
+     * @param column index of the column
+     * @return words of the column
+     */
+    public long[] getWords(int column) {
+        return columns[column];
+    }
+
+    /**
+     * Build the vertical representation, the i-th bitset is the column order[i]
+     * @param order order of the columns
+     * @return the vertical representation
+     */
+    public BitSet[] toBitSets(int[] order) {
+        BitSet[] data = new BitSet[order.length];
+        for (int i = 0; i < order.length; i++) {
+            data[i] = order[i] < nbColumns ? BitSet.valueOf(columns[order[i]]) : new BitSet();
+            // The column is no longer needed once it is copied in the bitset
+            if (order[i] < nbColumns) columns[order[i]] = EMPTY;
+        }
+        return data;
+    }
+}
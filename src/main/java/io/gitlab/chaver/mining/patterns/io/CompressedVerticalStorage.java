@@ -0,0 +1,316 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.nio.LongBuffer;
+import java.util.BitSet;
+
+/**
+ * Compressed vertical representation (Roaring-style) : the cover of each item is split in blocks of 2^16
+ * transactions and each non-empty block is stored in one of the following containers :
+ * - array container : sorted positions of the transactions (2 bytes per transaction)
+ * - run container : sorted runs of consecutive transactions (4 bytes per run)
+ * - bitmap container : uncompressed words (8 KB)
+ * Words of the covers are decoded on demand, so the cover of an item is never inflated.
+ */
+public class CompressedVerticalStorage implements VerticalStorage {
+
+    /** Number of transactions in a block is 2^BLOCK_BITS */
+    private static final int BLOCK_BITS = 16;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int WORDS_PER_BLOCK = BLOCK_SIZE >>> 6;
+
+    /** With this density, an array container has the same size as a bitmap container */
+    public static final double DEFAULT_ARRAY_DENSITY = 1d / 16;
+    /** With this density of runs, a run container has the same size as a bitmap container */
+    public static final double DEFAULT_RUN_DENSITY = 1d / 32;
+
+    private final int nbTransactions;
+    /** containers[i][b] : container of the block b of the item i (null if the block is empty) */
+    private final Container[][] containers;
+    private final int[] cardinalities;
+
+    public CompressedVerticalStorage(BitSet[] verticalRepresentation, int nbTransactions) {
+        this(verticalRepresentation, nbTransactions, DEFAULT_ARRAY_DENSITY, DEFAULT_RUN_DENSITY);
+    }
+
+    /**
+     * Compress a vertical representation
+     * @param verticalRepresentation cover of each item
+     * @param nbTransactions number of transactions
+     * @param arrayDensity a block is stored in an array container if its density is at most arrayDensity
+     * @param runDensity a block is stored in a run container if its number of runs divided by the size of a
+     *                   block is at most runDensity and if it's smaller than an array container
+     */
+    public CompressedVerticalStorage(BitSet[] verticalRepresentation, int nbTransactions, double arrayDensity,
+                                     double runDensity) {
+        if (arrayDensity < 0 || arrayDensity > 1 || runDensity < 0 || runDensity > 1) {
+            throw new IllegalArgumentException("Densities of containers must be between 0 and 1");
+        }
+        this.nbTransactions = nbTransactions;
+        int nbWords = (nbTransactions + 63) >>> 6;
+        int nbBlocks = (nbWords + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK;
+        int maxArrayCardinality = (int) (arrayDensity * BLOCK_SIZE);
+        int maxRuns = (int) (runDensity * BLOCK_SIZE);
+        containers = new Container[verticalRepresentation.length][nbBlocks];
+        cardinalities = new int[verticalRepresentation.length];
+        for (int i = 0; i < verticalRepresentation.length; i++) {
+            long[] words = verticalRepresentation[i].toLongArray();
+            cardinalities[i] = verticalRepresentation[i].cardinality();
+            for (int b = 0; b < nbBlocks; b++) {
+                int from = b * WORDS_PER_BLOCK;
+                int to = Math.min(words.length, from + WORDS_PER_BLOCK);
+                containers[i][b] = compress(words, from, to, maxArrayCardinality, maxRuns);
+            }
+        }
+    }
+
+    private static Container compress(long[] words, int from, int to, int maxArrayCardinality, int maxRuns) {
+        int cardinality = 0;
+        int nbRuns = 0;
+        long previous = 0;
+        for (int k = from; k < to; k++) {
+            cardinality += Long.bitCount(words[k]);
+            // A run starts at each bit set to 1 such that the previous bit is set to 0
+            nbRuns += Long.bitCount(words[k] & ~(words[k] << 1 | previous >>> 63));
+            previous = words[k];
+        }
+        if (cardinality == 0) {
+            return null;
+        }
+        if (nbRuns <= maxRuns && 2 * nbRuns < cardinality) {
+            return new RunContainer(words, from, to, nbRuns);
+        }
+        if (cardinality <= maxArrayCardinality) {
+            return new ArrayContainer(words, from, to, cardinality);
+        }
+        long[] bitmap = new long[to - from];
+        System.arraycopy(words, from, bitmap, 0, bitmap.length);
+        return new BitmapContainer(bitmap);
+    }
+
+    @Override
+    public int getNbItems() {
+        return containers.length;
+    }
+
+    @Override
+    public int getNbTransactions() {
+        return nbTransactions;
+    }
+
+    @Override
+    public long getWord(int item, int wordIndex) {
+        int block = wordIndex >>> (BLOCK_BITS - 6);
+        if (block >= containers[item].length) {
+            return 0;
+        }
+        Container container = containers[item][block];
+        return container == null ? 0 : container.getWord(wordIndex & (WORDS_PER_BLOCK - 1));
+    }
+
+    @Override
+    public int cardinality(int item) {
+        return cardinalities[item];
+    }
+
+    @Override
+    public BitSet toBitSet(int item) {
+        long[] words = new long[(nbTransactions + 63) >>> 6];
+        for (int b = 0; b < containers[item].length; b++) {
+            if (containers[item][b] != null) {
+                containers[item][b].copyWords(words, b * WORDS_PER_BLOCK);
+            }
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Approximate size of the containers in memory
+     * @return number of bytes used by the containers
+     */
+    @Override
+    public long getSizeInBytes() {
+        long size = 0;
+        for (Container[] itemContainers : containers) {
+            size += 8L * itemContainers.length;
+            for (Container container : itemContainers) {
+                if (container != null) {
+                    size += container.getSizeInBytes();
+                }
+            }
+        }
+        return size;
+    }
+
+    private interface Container {
+
+        /**
+         * @param wordIndex index of the word in the block
+         * @return the word of the block
+         */
+        long getWord(int wordIndex);
+
+        /**
+         * Copy the words of the block in dst (dst must be filled with 0)
+         * @param dst destination array
+         * @param offset index of the first word of the block in dst
+         */
+        void copyWords(long[] dst, int offset);
+
+        long getSizeInBytes();
+    }
+
+    private static class BitmapContainer implements Container {
+
+        private final long[] words;
+
+        BitmapContainer(long[] words) {
+            this.words = words;
+        }
+
+        @Override
+        public long getWord(int wordIndex) {
+            return wordIndex < words.length ? words[wordIndex] : 0;
+        }
+
+        @Override
+        public void copyWords(long[] dst, int offset) {
+            System.arraycopy(words, 0, dst, offset, words.length);
+        }
+
+        @Override
+        public long getSizeInBytes() {
+            return 8L * words.length;
+        }
+    }
+
+    private static class ArrayContainer implements Container {
+
+        /** Sorted positions of the transactions in the block */
+        private final char[] positions;
+
+        ArrayContainer(long[] words, int from, int to, int cardinality) {
+            positions = new char[cardinality];
+            int j = 0;
+            for (int k = from; k < to; k++) {
+                long w = words[k];
+                while (w != 0) {
+                    positions[j++] = (char) (((k - from) << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+        }
+
+        @Override
+        public long getWord(int wordIndex) {
+            int first = wordIndex << 6;
+            long word = 0;
+            for (int j = lowerBound(positions, first); j < positions.length && positions[j] < first + 64; j++) {
+                word |= 1L << positions[j];
+            }
+            return word;
+        }
+
+        @Override
+        public void copyWords(long[] dst, int offset) {
+            for (char p : positions) {
+                dst[offset + (p >>> 6)] |= 1L << p;
+            }
+        }
+
+        @Override
+        public long getSizeInBytes() {
+            return 2L * positions.length;
+        }
+    }
+
+    private static class RunContainer implements Container {
+
+        /** Position of the first transaction of each run */
+        private final char[] starts;
+        /** Length of each run minus 1 */
+        private final char[] lengths;
+
+        RunContainer(long[] words, int from, int to, int nbRuns) {
+            starts = new char[nbRuns];
+            lengths = new char[nbRuns];
+            BitSet block = BitSet.valueOf(LongBuffer.wrap(words, from, to - from));
+            int j = 0;
+            for (int start = block.nextSetBit(0); start >= 0; start = block.nextSetBit(start)) {
+                int end = block.nextClearBit(start);
+                starts[j] = (char) start;
+                lengths[j++] = (char) (end - start - 1);
+                start = end;
+            }
+        }
+
+        @Override
+        public long getWord(int wordIndex) {
+            int first = wordIndex << 6;
+            int last = first + 63;
+            long word = 0;
+            // Runs are sorted and disjoint : iterate from the last run which starts before the end of the word
+            for (int j = lowerBound(starts, last + 1) - 1; j >= 0; j--) {
+                int end = starts[j] + lengths[j];
+                if (end < first) {
+                    break;
+                }
+                int from = Math.max(starts[j], first);
+                int to = Math.min(end, last);
+                word |= (-1L >>> (63 - (to - from))) << (from - first);
+            }
+            return word;
+        }
+
+        @Override
+        public void copyWords(long[] dst, int offset) {
+            for (int j = 0; j < starts.length; j++) {
+                int from = (offset << 6) + starts[j];
+                int to = from + lengths[j];
+                int firstWord = from >>> 6;
+                int lastWord = to >>> 6;
+                if (firstWord == lastWord) {
+                    dst[firstWord] |= (-1L >>> (63 - (to - from))) << from;
+                    continue;
+                }
+                dst[firstWord] |= -1L << from;
+                for (int k = firstWord + 1; k < lastWord; k++) {
+                    dst[k] = -1L;
+                }
+                dst[lastWord] |= -1L >>> (63 - (to & 63));
+            }
+        }
+
+        @Override
+        public long getSizeInBytes() {
+            return 4L * starts.length;
+        }
+    }
+
+    /**
+     * @param a sorted array
+     * @param key value to search
+     * @return index of the first element of a which is greater or equal to key (a.length if there is none)
+     */
+    private static int lowerBound(char[] a, int key) {
+        int low = 0;
+        int high = a.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (a[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
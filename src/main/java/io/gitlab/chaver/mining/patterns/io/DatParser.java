@@ -0,0 +1,143 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Parse the bytes of transactions in .dat format (i.e. one transaction per line, items separated by spaces).
+ * Bytes can be given in several calls of parse(), the state of the current line is kept between the calls.
+ */
+class DatParser {
+
+    /** Dictionary which maps each item to the order of its first occurrence */
+    final ItemDictionary dictionary = new ItemDictionary();
+    /** Vertical representation of the items, in order of first occurrence */
+    final ColumnBuilder columns = new ColumnBuilder();
+    /** Index (in the dictionary) of the items which are the first item of a transaction */
+    final BitSet firstItems = new BitSet();
+    /** Number of transactions parsed */
+    int nbTransactions;
+
+    private final String source;
+    private long value;
+    private boolean negative;
+    private boolean inNumber;
+    private boolean emptyTransaction = true;
+    private boolean lineStart = true;
+    private boolean skip;
+    private int nbLines = 1;
+
+    /**
+     * @param source name of the parsed data (used in error messages)
+     */
+    DatParser(String source) {
+        this.source = source;
+    }
+
+    private void endItem() throws IOException {
+        if (!inNumber) {
+            if (negative) {
+                // A minus sign must be followed by the digits of the item
+                throw new LineFormatException("Unexpected character '-'", nbLines, source);
+            }
+            return;
+        }
+        int idx = dictionary.getOrAdd((int) (negative ? -value : value));
+        if (emptyTransaction) {
+            firstItems.set(idx);
+            emptyTransaction = false;
+        }
+        columns.set(idx, nbTransactions);
+        value = 0;
+        negative = false;
+        inNumber = false;
+    }
+
+    private void endTransaction() throws IOException {
+        endItem();
+        if (!emptyTransaction) {
+            nbTransactions++;
+            emptyTransaction = true;
+        }
+    }
+
+    /**
+     * Parse buffer[from, to[
+     * @param buffer bytes to parse
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @throws IOException if an unexpected character or an item which doesn't fit in an int is found
+     */
+    void parse(byte[] buffer, int from, int to) throws IOException {
+        for (int k = from; k < to; k++) {
+            byte b = buffer[k];
+            if (b == '\n') {
+                endTransaction();
+                lineStart = true;
+                skip = false;
+                nbLines++;
+            }
+            else if (skip) {
+                continue;
+            }
+            else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+                    // The item doesn't fit in an int
+                    throw new LineFormatException("Item out of range", nbLines, source);
+                }
+                inNumber = true;
+                lineStart = false;
+            }
+            else if (b == ' ' || b == '\t' || b == '\r') {
+                endItem();
+            }
+            else if (lineStart && (b == '#' || b == '%' || b == '@')) {
+                skip = true;
+            }
+            else if (b == '-' && !inNumber && !negative) {
+                negative = true;
+                lineStart = false;
+            }
+            else {
+                throw new LineFormatException("Unexpected character '" + (char) b + "'", nbLines, source);
+            }
+        }
+    }
+
+    /**
+     * End of the data : the last transaction is added even if there is no line break at the end
+     * @throws IOException if the data ends with a minus sign
+     */
+    void finish() throws IOException {
+        endTransaction();
+    }
+
+    /**
+     * Sort item names
+     * @param names name of the items
+     * @return an array order such that names[order[i]] is the i-th smallest name
+     */
+    static int[] sortOrder(int[] names) {
+        long[] sortKeys = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            sortKeys[i] = ((long) names[i] << 32) | i;
+        }
+        Arrays.sort(sortKeys);
+        int[] order = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            order[i] = (int) sortKeys[i];
+        }
+        return order;
+    }
+}
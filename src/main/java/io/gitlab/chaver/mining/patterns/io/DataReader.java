@@ -9,7 +9,7 @@
  */
 package io.gitlab.chaver.mining.patterns.io;
 
-import io.gitlab.chaver.mining.patterns.io.values.DoubleValuesReader;
+import io.gitlab.chaver.mining.patterns.io.values.ColumnarValuesReader;
 import io.gitlab.chaver.mining.patterns.io.values.IValuesReader;
 import lombok.Setter;
 
@@ -47,7 +47,7 @@ public abstract class DataReader {
         this.nbValueMeasures = nbValueMeasures;
         String[] pathSplit = dataPath.split("\\.");
         this.extension = pathSplit[pathSplit.length - 1];
-        valuesReader = new DoubleValuesReader(nbValueMeasures, extension, dataPath);
+        valuesReader = new ColumnarValuesReader(nbValueMeasures, extension, dataPath);
     }
 
     public DataReader(String dataPath, int nbValueMeasures, boolean noClasses) {
@@ -69,10 +69,17 @@ public abstract class DataReader {
      * Read files which contain values of items
      * For instance, if we want to read three files of values of zoo.txt, the files
      *   zoo.val0, zoo.val1 and zoo.val2 will be read
-     * @throws IOException if a file doesn't exist
+     * @throws IOException if a file doesn't exist or if it contains less values than the number of items
      */
     protected int[][] readValueFiles() throws IOException {
-        return valuesReader.readValueFiles();
+        int[][] values = valuesReader.readValueFiles();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].length < nbItems) {
+                throw new IOException("The values of the measure " + i + " of " + dataPath + " contain " +
+                        values[i].length + " values but the database contains " + nbItems + " items");
+            }
+        }
+        return values;
     }
 
     protected boolean skipLine(String line) {
@@ -0,0 +1,31 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+/**
+ * Select the reader of a data file w.r.t. its extension
+ */
+public class DataReaderFactory {
+
+    /**
+     * Get the reader of a data file : snapshot files (.snap) are read with a {@link SnapshotReader}, other files
+     * are read as files with number of items (.dat format)
+     * @param dataPath path of the data file
+     * @param nbValueMeasures number of measures which require a values file
+     * @param noClasses TRUE if classes are ignored
+     * @return the reader of the file
+     */
+    public static DataReader getReader(String dataPath, int nbValueMeasures, boolean noClasses) {
+        if (dataPath.endsWith("." + SnapshotWriter.EXTENSION)) {
+            return new SnapshotReader(dataPath, nbValueMeasures, noClasses);
+        }
+        return new StreamingDatReader(dataPath, nbValueMeasures, noClasses);
+    }
+}
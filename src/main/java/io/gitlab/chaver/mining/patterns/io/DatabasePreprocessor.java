@@ -0,0 +1,152 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reduce a database before the model is built :
+ * - the items whose frequency is less than a threshold are removed
+ * - the excluded items are removed
+ * - the transactions which contain no item are removed (the number of transactions of the database is not modified,
+ *   so the relative frequencies and the class counts stay the same)
+ * - the items which have the same cover are merged in a single item
+ * The class items are never removed nor merged. The ids of the original items represented by each item of the reduced
+ * database are available with {@link TransactionalDatabase#getItemIds(int)}, and its items map associates each of
+ * these ids to the index of the item.
+ * Removing the infrequent items doesn't modify the closed patterns only if they are closed w.r.t. the frequency, and
+ * merging the items doesn't modify the closed patterns only if the measures only depend on the cover and on the
+ * frequency of the items (the values of a merged item are the values of its first item) : it's up to the caller
+ * to check these conditions.
+ */
+public class DatabasePreprocessor {
+
+    /** The items whose frequency is less than minFreq are removed */
+    private @Setter int minFreq;
+    /** Indexes of the items to remove */
+    private @Setter int[] excludedItems = new int[0];
+    /** TRUE if the transactions which contain no item are removed */
+    private @Setter boolean removeEmptyTransactions;
+    /** TRUE if the items with the same cover are merged */
+    private @Setter boolean mergeEquivalentItems;
+
+    /**
+     * Reduce a database
+     * @param database database
+     * @return the reduced database
+     */
+    public TransactionalDatabase preprocess(TransactionalDatabase database) {
+        List<List<Integer>> groups = groupItems(database);
+        BitSet rows = new BitSet(database.getNbRows());
+        if (removeEmptyTransactions) {
+            for (List<Integer> group : groups) {
+                rows.or(database.getCover(group.get(0)));
+            }
+        } else {
+            rows.set(0, database.getNbRows());
+        }
+        int nbRows = rows.cardinality();
+        boolean mergedItems = database.getMergedItemIds() != null;
+        int[] items = new int[groups.size()];
+        int[][] values = new int[database.getValues().length][groups.size()];
+        BitSet[] reducedRepresentation = new BitSet[groups.size()];
+        int[][] mergedItemIds = new int[groups.size()][];
+        for (int k = 0; k < groups.size(); k++) {
+            int first = groups.get(k).get(0);
+            items[k] = database.getItems()[first];
+            for (int m = 0; m < values.length; m++) {
+                values[m][k] = database.getValues()[m][first];
+            }
+            reducedRepresentation[k] = nbRows == database.getNbRows() ? database.getCover(first) :
+                    project(database.getCover(first), rows);
+            mergedItemIds[k] = groups.get(k).stream()
+                    .flatMapToInt(i -> Arrays.stream(database.getItemIds(i)))
+                    .sorted()
+                    .toArray();
+            mergedItems |= groups.get(k).size() > 1;
+        }
+        int[] transactionIds = new int[database.getNbTransactions()];
+        int[] rowOffsets = new int[nbRows + 1];
+        int nbIds = 0;
+        int row = 0;
+        for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+            rowOffsets[row++] = nbIds;
+            for (int id : database.getTransactionIds(r)) {
+                transactionIds[nbIds++] = id;
+            }
+        }
+        rowOffsets[nbRows] = nbIds;
+        TransactionalDatabase reduced;
+        if (database.getWeights() == null) {
+            reduced = new TransactionalDatabase(items, values, database.getNbClass(), reducedRepresentation, nbRows,
+                    Arrays.copyOf(transactionIds, nbIds));
+        } else {
+            reduced = new TransactionalDatabase(items, values, database.getNbClass(), reducedRepresentation, nbRows,
+                    Arrays.copyOf(transactionIds, nbIds), rowOffsets);
+        }
+        reduced.setNbTransactions(database.getNbTransactions());
+        if (mergedItems) {
+            reduced.setMergedItemIds(mergedItemIds);
+        }
+        return reduced;
+    }
+
+    /**
+     * Group the items which are kept : each class item is alone in its group, the other items are grouped by cover
+     * if mergeEquivalentItems is TRUE
+     * @return the indexes of the items of each group, in the order of their first item
+     */
+    private List<List<Integer>> groupItems(TransactionalDatabase database) {
+        int[] itemFreq = database.computeItemFreq();
+        boolean[] excluded = new boolean[database.getNbItems()];
+        for (int i : excludedItems) {
+            excluded[i] = true;
+        }
+        List<List<Integer>> groups = new ArrayList<>();
+        Map<BitSet, List<Integer>> groupsByCover = new LinkedHashMap<>();
+        for (int i = 0; i < database.getNbItems(); i++) {
+            if (i < database.getNbClass()) {
+                groups.add(new ArrayList<>(Arrays.asList(i)));
+            } else if (!excluded[i] && itemFreq[i] >= minFreq) {
+                if (mergeEquivalentItems) {
+                    groupsByCover.computeIfAbsent(database.getCover(i), c -> new ArrayList<>()).add(i);
+                } else {
+                    groups.add(new ArrayList<>(Arrays.asList(i)));
+                }
+            }
+        }
+        groups.addAll(groupsByCover.values());
+        return groups;
+    }
+
+    /**
+     * @param cover cover of an item
+     * @param rows rows which are kept
+     * @return the cover of the item w.r.t. the rows which are kept
+     */
+    private static BitSet project(BitSet cover, BitSet rows) {
+        BitSet projected = new BitSet(rows.cardinality());
+        int row = 0;
+        for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+            if (cover.get(r)) {
+                projected.set(row);
+            }
+            row++;
+        }
+        return projected;
+    }
+}
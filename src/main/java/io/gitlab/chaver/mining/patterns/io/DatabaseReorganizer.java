@@ -0,0 +1,182 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Reorganize a database at load time to improve the locality of the covers :
+ * - the items can be sorted by support, the class items stay at the beginning of the database
+ * - the transactions can be sorted such that similar transactions are next to each other
+ * - identical transactions can be merged in a weighted row
+ * The ids of the items are kept in the database, so the patterns are still reported with the original ids, and
+ * the original index of the transactions of each row is available with
+ * {@link TransactionalDatabase#getTransactionIds(int)}.
+ */
+public class DatabaseReorganizer {
+
+    /** Items are sorted by increasing support */
+    public static final String SUPPORT_ASC = "asc";
+    /** Items are sorted by decreasing support */
+    public static final String SUPPORT_DESC = "desc";
+
+    /**
+     * Sort the items by support (the order of items with the same support is not modified), the class items are not
+     * moved
+     * @param database database
+     * @param order SUPPORT_ASC or SUPPORT_DESC
+     * @return the permutation of the items : permutation[i] is the index in database of the i-th item
+     */
+    public static int[] sortItemsBySupport(TransactionalDatabase database, String order) {
+        if (!order.equals(SUPPORT_ASC) && !order.equals(SUPPORT_DESC)) {
+            throw new IllegalArgumentException("Incorrect item order : " + order);
+        }
+        int[] itemFreq = database.computeItemFreq();
+        int nbClass = database.getNbClass();
+        // The support and the index of each item are packed in a long, the index breaks the ties
+        long[] sortKeys = new long[database.getNbItems() - nbClass];
+        for (int i = nbClass; i < database.getNbItems(); i++) {
+            long support = order.equals(SUPPORT_DESC) ? -itemFreq[i] : itemFreq[i];
+            sortKeys[i - nbClass] = (support << 32) | i;
+        }
+        Arrays.sort(sortKeys);
+        int[] permutation = new int[database.getNbItems()];
+        for (int i = 0; i < nbClass; i++) {
+            permutation[i] = i;
+        }
+        for (int i = 0; i < sortKeys.length; i++) {
+            permutation[nbClass + i] = (int) sortKeys[i];
+        }
+        return permutation;
+    }
+
+    /**
+     * Permute the items of a database (the values of the items are permuted too)
+     * @param database database
+     * @param permutation permutation[i] is the index in database of the i-th item of the new database
+     * @return the new database
+     */
+    public static TransactionalDatabase permuteItems(TransactionalDatabase database, int[] permutation) {
+        int[] items = new int[permutation.length];
+        BitSet[] verticalRepresentation = new BitSet[permutation.length];
+        for (int i = 0; i < permutation.length; i++) {
+            items[i] = database.getItems()[permutation[i]];
+            verticalRepresentation[i] = database.getCover(permutation[i]);
+        }
+        int[][] values = new int[database.getValues().length][permutation.length];
+        for (int m = 0; m < values.length; m++) {
+            for (int i = 0; i < permutation.length; i++) {
+                values[m][i] = database.getValues()[m][permutation[i]];
+            }
+        }
+        Integer[] rows = IntStream.range(0, database.getNbRows()).boxed().toArray(Integer[]::new);
+        TransactionalDatabase permuted = rebuild(database, items, values, verticalRepresentation, rows, false);
+        if (database.getMergedItemIds() != null) {
+            int[][] mergedItemIds = new int[permutation.length][];
+            for (int i = 0; i < permutation.length; i++) {
+                mergedItemIds[i] = database.getMergedItemIds()[permutation[i]];
+            }
+            permuted.setMergedItemIds(mergedItemIds);
+        }
+        return permuted;
+    }
+
+    /**
+     * Sort the transactions in the lexicographic order of their items : transactions which share their first items
+     * are next to each other, so the covers of these items are made of few dense words. It's best applied after
+     * the items have been sorted by decreasing support.
+     * @param database database
+     * @return the new database
+     */
+    public static TransactionalDatabase clusterTransactions(TransactionalDatabase database) {
+        return rebuild(database, database.getItems(), database.getValues(), null, sortRows(database), false);
+    }
+
+    /**
+     * Merge identical transactions in a single row whose weight is the number of merged transactions : the
+     * frequency of a pattern is the sum of the weights of the rows of its cover. The rows are sorted in the same
+     * order as {@link #clusterTransactions(TransactionalDatabase)}.
+     * @param database database
+     * @return the new database
+     */
+    public static TransactionalDatabase mergeDuplicateTransactions(TransactionalDatabase database) {
+        return rebuild(database, database.getItems(), database.getValues(), null, sortRows(database), true);
+    }
+
+    private static Integer[] sortRows(TransactionalDatabase database) {
+        int[][] rows = database.getHorizontalRepresentation();
+        Integer[] order = IntStream.range(0, database.getNbRows()).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, (r1, r2) -> compareRows(rows[r1], rows[r2]));
+        return order;
+    }
+
+    /**
+     * Build a database whose rows are the rows of database in the given order
+     * @param verticalRepresentation covers of the items w.r.t. the rows of database if the rows are not reordered
+     *                               (null if the covers must be computed from the rows)
+     * @param order order[r] is the row of database which becomes the row r of the new database
+     * @param merge TRUE if consecutive identical rows must be merged
+     */
+    private static TransactionalDatabase rebuild(TransactionalDatabase database, int[] items, int[][] values,
+                                                 BitSet[] verticalRepresentation, Integer[] order, boolean merge) {
+        int[][] rows = verticalRepresentation == null ? database.getHorizontalRepresentation() : null;
+        if (verticalRepresentation == null) {
+            verticalRepresentation = new BitSet[items.length];
+            for (int i = 0; i < items.length; i++) {
+                verticalRepresentation[i] = new BitSet(order.length);
+            }
+        }
+        int[] transactionIds = new int[database.getNbTransactions()];
+        int[] rowOffsets = new int[order.length + 1];
+        int nbRows = 0;
+        int nbIds = 0;
+        for (int k = 0; k < order.length; k++) {
+            if (!merge || k == 0 || !Arrays.equals(rows[order[k]], rows[order[k - 1]])) {
+                if (rows != null) {
+                    for (int i : rows[order[k]]) {
+                        verticalRepresentation[i].set(nbRows);
+                    }
+                }
+                rowOffsets[nbRows++] = nbIds;
+            }
+            for (int id : database.getTransactionIds(order[k])) {
+                transactionIds[nbIds++] = id;
+            }
+        }
+        rowOffsets[nbRows] = nbIds;
+        TransactionalDatabase rebuilt;
+        if (!merge && database.getWeights() == null) {
+            rebuilt = new TransactionalDatabase(items, values, database.getNbClass(), verticalRepresentation,
+                    nbRows, Arrays.copyOf(transactionIds, nbIds));
+        } else {
+            rebuilt = new TransactionalDatabase(items, values, database.getNbClass(), verticalRepresentation, nbRows,
+                    Arrays.copyOf(transactionIds, nbIds), Arrays.copyOf(rowOffsets, nbRows + 1));
+        }
+        // Empty transactions removed from database are not represented by a row
+        rebuilt.setNbTransactions(database.getNbTransactions());
+        rebuilt.setMergedItemIds(database.getMergedItemIds());
+        return rebuilt;
+    }
+
+    /**
+     * Lexicographic comparison of two sorted rows : a row which contains the smallest item comes first
+     */
+    private static int compareRows(int[] row1, int[] row2) {
+        int length = Math.min(row1.length, row2.length);
+        for (int k = 0; k < length; k++) {
+            if (row1[k] != row2[k]) {
+                return Integer.compare(row1[k], row2[k]);
+            }
+        }
+        return Integer.compare(row2.length, row1.length);
+    }
+}
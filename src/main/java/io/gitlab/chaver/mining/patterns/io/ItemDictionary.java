@@ -0,0 +1,110 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.util.Arrays;
+
+/**
+ * Primitive dictionary which maps the name of each item to a dense index (i.e. the order of first occurrence
+ * of the item). It uses open addressing with linear probing, so no object is allocated when an item is looked up.
+ */
+public class ItemDictionary {
+
+    /** Name of the items, in order of first occurrence */
+    private int[] items;
+    /** Number of items in the dictionary */
+    private int size;
+    /** Hash table : index of the item + 1 (0 if the slot is empty) */
+    private int[] slots;
+    /** slots.length - 1 */
+    private int mask;
+
+    public ItemDictionary() {
+        this(64);
+    }
+
+    /**
+     * Create a dictionary
+     * @param expectedSize expected number of items
+     */
+    public ItemDictionary(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        items = new int[Math.max(expectedSize, 8)];
+    }
+
+    private int slot(int item) {
+        int h = item * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Index of the item in the dictionary
+     * @param item name of the item
+     * @return the index of the item or -1 if the item is not in the dictionary
+     */
+    public int indexOf(int item) {
+        for (int s = slot(item); slots[s] != 0; s = (s + 1) & mask) {
+            int idx = slots[s] - 1;
+            if (items[idx] == item) return idx;
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the item in the dictionary, the item is added if it is not already in the dictionary
+     * @param item name of the item
+     * @return the index of the item
+     */
+    public int getOrAdd(int item) {
+        int s = slot(item);
+        while (slots[s] != 0) {
+            int idx = slots[s] - 1;
+            if (items[idx] == item) return idx;
+            s = (s + 1) & mask;
+        }
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size] = item;
+        slots[s] = ++size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        mask = slots.length - 1;
+        for (int idx = 0; idx < size; idx++) {
+            int s = slot(items[idx]);
+            while (slots[s] != 0) {
+                s = (s + 1) & mask;
+            }
+            slots[s] = idx + 1;
+        }
+    }
+
+    /**
+     * @return number of items in the dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return name of the items in order of first occurrence
+     */
+    public int[] getItems() {
+        return Arrays.copyOf(items, size);
+    }
+}
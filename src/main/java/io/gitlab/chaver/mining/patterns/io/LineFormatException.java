@@ -0,0 +1,43 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.io.IOException;
+
+/**
+ * Error in a given line of a data file. Data which is parsed in chunks numbers its lines from the start of
+ * the chunk, so the line can be shifted by the number of lines of the previous chunks.
+ */
+class LineFormatException extends IOException {
+
+    /** Description of the error */
+    private final String reason;
+    /** Number of the line (starting from 1) */
+    final long line;
+    /** Name of the parsed data */
+    private final String source;
+
+    LineFormatException(String reason, long line, String source) {
+        super(reason + " in line " + line + " of " + source);
+        this.reason = reason;
+        this.line = line;
+        this.source = source;
+    }
+
+    /**
+     * @param nbLinesBefore number of lines which precede the parsed data
+     * @return the same error, with the line number shifted by nbLinesBefore
+     */
+    LineFormatException shift(long nbLinesBefore) {
+        LineFormatException e = new LineFormatException(reason, line + nbLinesBefore, source);
+        e.setStackTrace(getStackTrace());
+        return e;
+    }
+}
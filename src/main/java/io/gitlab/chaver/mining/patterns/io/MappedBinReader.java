@@ -0,0 +1,159 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Read a file with 0-1 data (same format as {@link BinReader}) in parallel : each chunk of the file has its own
+ * vertical representation, which are merged w.r.t. the offset of the chunk.
+ */
+public class MappedBinReader extends MappedDataReader<MappedBinReader.BinChunk> {
+
+    public MappedBinReader(String dataPath, int nbValueMeasures, boolean noClasses, int parallelism) {
+        super(dataPath, nbValueMeasures, noClasses, parallelism);
+    }
+
+    public MappedBinReader(String dataPath, int nbValueMeasures, boolean noClasses) {
+        super(dataPath, nbValueMeasures, noClasses);
+    }
+
+    public MappedBinReader(String dataPath, int nbValueMeasures) {
+        this(dataPath, nbValueMeasures, false);
+    }
+
+    /**
+     * Parse the bytes of a chunk of 0-1 data and build its vertical representation
+     */
+    static class BinChunk {
+        final ColumnBuilder columns = new ColumnBuilder();
+        /** Number of items of each line (-1 if the chunk is empty) */
+        int nbItems = -1;
+        int nbTransactions;
+        int maxClass = 1;
+
+        private final String source;
+        private int item;
+        private int tokenSize;
+        private boolean one;
+        private boolean lineStart = true;
+        private boolean skip;
+        private boolean classFound;
+
+        BinChunk(String source) {
+            this.source = source;
+        }
+
+        private void endItem() {
+            if (tokenSize == 0) return;
+            if (one) {
+                columns.set(item, nbTransactions);
+                if (!classFound) {
+                    classFound = true;
+                    maxClass = Math.max(maxClass, item + 1);
+                }
+            }
+            item++;
+            tokenSize = 0;
+        }
+
+        private void endTransaction() throws IOException {
+            endItem();
+            if (item > 0) {
+                if (nbItems == -1) {
+                    nbItems = item;
+                }
+                if (nbItems != item) {
+                    throw new IOException("Item number is different in a line of " + source);
+                }
+                nbTransactions++;
+            }
+            item = 0;
+            classFound = false;
+        }
+
+        void parse(byte[] buffer, int from, int to) throws IOException {
+            for (int k = from; k < to; k++) {
+                byte b = buffer[k];
+                if (b == '\n') {
+                    endTransaction();
+                    lineStart = true;
+                    skip = false;
+                }
+                else if (skip) {
+                    continue;
+                }
+                else if (b == ' ' || b == '\t' || b == '\r') {
+                    endItem();
+                }
+                else if (lineStart && (b == '#' || b == '%' || b == '@')) {
+                    skip = true;
+                }
+                else {
+                    one = tokenSize == 0 && b == '1';
+                    tokenSize++;
+                    lineStart = false;
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            endTransaction();
+        }
+    }
+
+    @Override
+    protected BinChunk parseChunk(ByteBuffer chunk) throws IOException {
+        BinChunk result = new BinChunk(dataPath);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (chunk.hasRemaining()) {
+            int n = Math.min(buffer.length, chunk.remaining());
+            chunk.get(buffer, 0, n);
+            result.parse(buffer, 0, n);
+        }
+        result.finish();
+        return result;
+    }
+
+    @Override
+    protected TransactionalDatabase merge(List<BinChunk> chunks, ForkJoinPool pool) throws IOException {
+        nbItems = 0;
+        for (BinChunk chunk : chunks) {
+            if (chunk.nbItems == -1) continue;
+            if (nbItems == 0) {
+                nbItems = chunk.nbItems;
+            }
+            if (nbItems != chunk.nbItems) {
+                throw new IOException("Item number is different in a line of " + dataPath);
+            }
+        }
+        int[] offsets = offsets(chunks.stream().mapToInt(c -> c.nbTransactions).toArray());
+        nbTransactions = offsets[chunks.size()];
+        BitSet[] data = new BitSet[nbItems];
+        pool.submit(() -> IntStream.range(0, nbItems).parallel().forEach(i -> {
+            long[] words = new long[(nbTransactions + 63) >>> 6];
+            for (int c = 0; c < chunks.size(); c++) {
+                BinChunk chunk = chunks.get(c);
+                if (i < chunk.columns.getNbColumns()) {
+                    orShifted(words, chunk.columns.getWords(i), offsets[c]);
+                }
+            }
+            data[i] = BitSet.valueOf(words);
+        })).join();
+        int maxClass = chunks.stream().mapToInt(c -> c.maxClass).max().orElse(1);
+        int[] items = IntStream.range(1, nbItems + 1).toArray();
+        return new TransactionalDatabase(items, readValueFiles(), noClasses ? 0 : maxClass, data, nbTransactions);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Read a file with number of items (same format as {@link DatReader}) in parallel : each chunk of the file has
+ * its own dictionary of items and its own vertical representation, which are merged w.r.t. the offset of the chunk.
+ */
+public class MappedDatReader extends MappedDataReader<DatParser> {
+
+    public MappedDatReader(String dataPath, int nbValueMeasures, boolean noClasses, int parallelism) {
+        super(dataPath, nbValueMeasures, noClasses, parallelism);
+    }
+
+    public MappedDatReader(String dataPath, int nbValueMeasures, boolean noClasses) {
+        super(dataPath, nbValueMeasures, noClasses);
+    }
+
+    public MappedDatReader(String dataPath, int nbValueMeasures) {
+        this(dataPath, nbValueMeasures, false);
+    }
+
+    @Override
+    protected DatParser parseChunk(ByteBuffer chunk) throws IOException {
+        DatParser parser = new DatParser(dataPath);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (chunk.hasRemaining()) {
+            int n = Math.min(buffer.length, chunk.remaining());
+            chunk.get(buffer, 0, n);
+            parser.parse(buffer, 0, n);
+        }
+        parser.finish();
+        return parser;
+    }
+
+    @Override
+    protected TransactionalDatabase merge(List<DatParser> chunks, ForkJoinPool pool) throws IOException {
+        // Global dictionary of the items
+        ItemDictionary dictionary = new ItemDictionary();
+        for (DatParser chunk : chunks) {
+            for (int item : chunk.dictionary.getItems()) {
+                dictionary.getOrAdd(item);
+            }
+        }
+        int[] names = dictionary.getItems();
+        nbItems = names.length;
+        int[] order = DatParser.sortOrder(names);
+        int[] sortedItems = new int[nbItems];
+        for (int i = 0; i < nbItems; i++) {
+            sortedItems[i] = names[order[i]];
+        }
+        int[] offsets = offsets(chunks.stream().mapToInt(c -> c.nbTransactions).toArray());
+        nbTransactions = offsets[chunks.size()];
+        // Each column of the database is built by OR-ing the shifted columns of the chunks
+        BitSet[] data = new BitSet[nbItems];
+        pool.submit(() -> IntStream.range(0, nbItems).parallel().forEach(i -> {
+            long[] words = new long[(nbTransactions + 63) >>> 6];
+            for (int c = 0; c < chunks.size(); c++) {
+                DatParser chunk = chunks.get(c);
+                int idx = chunk.dictionary.indexOf(sortedItems[i]);
+                if (idx != -1) {
+                    orShifted(words, chunk.columns.getWords(idx), offsets[c]);
+                }
+            }
+            data[i] = BitSet.valueOf(words);
+        })).join();
+        // The class of a transaction is the index of its first item
+        int maxClass = 1;
+        for (int i = 0; i < nbItems; i++) {
+            for (DatParser chunk : chunks) {
+                int idx = chunk.dictionary.indexOf(sortedItems[i]);
+                if (idx != -1 && chunk.firstItems.get(idx)) {
+                    maxClass = i + 1;
+                    break;
+                }
+            }
+        }
+        return new TransactionalDatabase(sortedItems, readValueFiles(), noClasses ? 0 : maxClass, data, nbTransactions);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import lombok.Setter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Read a data file in parallel :
+ * - the file is memory-mapped and split in chunks at line boundaries
+ * - each chunk is parsed by a task of a fork-join pool
+ * - the results of the chunks are merged, in the order of the file, to build the database
+ * @param <C> result of the parsing of a chunk
+ */
+public abstract class MappedDataReader<C> extends DataReader {
+
+    /** Size of the buffer used to copy the bytes of a mapped chunk before parsing them */
+    protected static final int BUFFER_SIZE = 1 << 16;
+    /** Min size of a chunk (in bytes) */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    /** Max size of a chunk (in bytes), a mapped buffer can't exceed Integer.MAX_VALUE bytes */
+    private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+    /** Number of threads used to parse the chunks */
+    protected final int parallelism;
+    /** Size of the chunks (in bytes), if 0 the size is computed w.r.t. the size of the file and the parallelism */
+    private @Setter long chunkSize;
+
+    public MappedDataReader(String dataPath, int nbValueMeasures, boolean noClasses, int parallelism) {
+        super(dataPath, nbValueMeasures, noClasses);
+        this.parallelism = parallelism;
+    }
+
+    public MappedDataReader(String dataPath, int nbValueMeasures, boolean noClasses) {
+        this(dataPath, nbValueMeasures, noClasses, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Parse a chunk of the file (the chunk contains only complete lines)
+     * @param chunk bytes of the chunk
+     * @return the result of the parsing
+     * @throws IOException if the chunk is not well formatted
+     */
+    protected abstract C parseChunk(ByteBuffer chunk) throws IOException;
+
+    /**
+     * Merge the chunks to build the database
+     * @param chunks result of the parsing of each chunk (in the order of the file)
+     * @param pool pool which can be used to merge the chunks in parallel
+     * @return the database
+     */
+    protected abstract TransactionalDatabase merge(List<C> chunks, ForkJoinPool pool) throws IOException;
+
+    @Override
+    public TransactionalDatabase read() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(Paths.get(dataPath), StandardOpenOption.READ)) {
+            List<MappedByteBuffer> buffers = new ArrayList<>();
+            List<Callable<C>> tasks = new ArrayList<>();
+            for (long[] bounds : computeChunks(channel)) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, bounds[0], bounds[1] - bounds[0]);
+                buffers.add(chunk);
+                tasks.add(() -> parseChunk(chunk));
+            }
+            List<Future<C>> results = pool.invokeAll(tasks);
+            List<C> chunks = new ArrayList<>();
+            for (int c = 0; c < results.size(); c++) {
+                try {
+                    chunks.add(results.get(c).get());
+                } catch (ExecutionException e) {
+                    // The pool wraps the exception of the task in runtime exceptions
+                    Throwable cause = e.getCause();
+                    while (cause != null && !(cause instanceof IOException)) {
+                        cause = cause.getCause();
+                    }
+                    if (cause instanceof LineFormatException) {
+                        // The lines of a chunk are numbered from its start
+                        throw ((LineFormatException) cause).shift(countLines(buffers.subList(0, c)));
+                    }
+                    if (cause != null) throw (IOException) cause;
+                    throw new IOException(e.getCause());
+                }
+            }
+            return merge(chunks, pool);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reading of " + dataPath + " has been interrupted", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Split the file in chunks such that each chunk ends with a line break (or with the end of the file)
+     * @param channel channel of the file
+     * @return the list of chunks [start, end[
+     */
+    private List<long[]> computeChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long step = chunkSize > 0 ? chunkSize : Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4L));
+        step = Math.min(step, MAX_CHUNK_SIZE);
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer window = ByteBuffer.allocate(BUFFER_SIZE);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + step, size);
+            end = nextLineStart(channel, window, end, size);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Find the position which follows the first line break at or after pos
+     */
+    private long nextLineStart(FileChannel channel, ByteBuffer window, long pos, long size) throws IOException {
+        while (pos < size) {
+            window.clear();
+            int n = channel.read(window, pos);
+            for (int k = 0; k < n; k++) {
+                if (window.get(k) == '\n') {
+                    return pos + k + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Count the line breaks of the chunks (only used to report the line of an error)
+     */
+    private static long countLines(List<MappedByteBuffer> chunks) {
+        long nbLines = 0;
+        for (MappedByteBuffer chunk : chunks) {
+            ByteBuffer bytes = chunk.duplicate();
+            bytes.rewind();
+            while (bytes.hasRemaining()) {
+                if (bytes.get() == '\n') {
+                    nbLines++;
+                }
+            }
+        }
+        return nbLines;
+    }
+
+    /**
+     * Apply a bitwise OR between dst and the words of src shifted by offset bits
+     * @param dst destination words (must be large enough to contain the shifted words)
+     * @param src source words
+     * @param offset number of bits of the shift
+     */
+    protected static void orShifted(long[] dst, long[] src, int offset) {
+        int wordShift = offset >>> 6;
+        int bitShift = offset & 63;
+        for (int k = 0; k < src.length; k++) {
+            long w = src[k];
+            if (w == 0) continue;
+            dst[k + wordShift] |= w << bitShift;
+            if (bitShift != 0 && k + wordShift + 1 < dst.length) {
+                dst[k + wordShift + 1] |= w >>> (64 - bitShift);
+            }
+        }
+    }
+
+    /**
+     * Offset of each chunk in the database (i.e. index of its first transaction)
+     * @param nbTransactions number of transactions of each chunk
+     * @return an array of size nbChunks + 1, the last value being the total number of transactions
+     */
+    protected static int[] offsets(int[] nbTransactions) {
+        int[] offsets = new int[nbTransactions.length + 1];
+        for (int c = 0; c < nbTransactions.length; c++) {
+            offsets[c + 1] = offsets[c] + nbTransactions[c];
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Uncompressed vertical representation stored outside of the heap : the covers of the items are stored contiguously
+ * (ceil(nbTransactions / 64) words per item) in direct buffers or in a file mapped in memory, so the size of the heap
+ * doesn't depend on the size of the dataset. The storage is read-only, so it can be shared by several solvers.
+ * A buffer can't contain more than 2^31 bytes : the items are split in chunks, each chunk is stored in its own buffer.
+ * File format (little endian) : number of items (int), number of transactions (int), cardinality of each item (int),
+ * padding to align the words on 8 bytes, words of the covers.
+ */
+public class OffHeapVerticalStorage implements VerticalStorage {
+
+    /** Max number of words in a buffer */
+    private static final int MAX_CHUNK_WORDS = Integer.MAX_VALUE >>> 3;
+
+    private final int nbTransactions;
+    private final int nbWords;
+    /** Number of items whose words are stored in a chunk */
+    private final int itemsPerChunk;
+    private final LongBuffer[] chunks;
+    private final int[] cardinalities;
+
+    /**
+     * Copy a vertical representation in direct buffers
+     * @param verticalRepresentation cover of each item
+     * @param nbTransactions number of transactions
+     */
+    public OffHeapVerticalStorage(BitSet[] verticalRepresentation, int nbTransactions) {
+        this.nbTransactions = nbTransactions;
+        nbWords = (nbTransactions + 63) >>> 6;
+        itemsPerChunk = computeItemsPerChunk(nbWords);
+        int nbItems = verticalRepresentation.length;
+        chunks = new LongBuffer[(nbItems + itemsPerChunk - 1) / itemsPerChunk];
+        cardinalities = new int[nbItems];
+        for (int c = 0; c < chunks.length; c++) {
+            int nbChunkItems = Math.min(itemsPerChunk, nbItems - c * itemsPerChunk);
+            chunks[c] = ByteBuffer.allocateDirect(8 * nbChunkItems * nbWords)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asLongBuffer();
+        }
+        for (int i = 0; i < nbItems; i++) {
+            long[] words = verticalRepresentation[i].toLongArray();
+            LongBuffer chunk = chunks[i / itemsPerChunk];
+            chunk.position((i % itemsPerChunk) * nbWords);
+            chunk.put(words, 0, Math.min(words.length, nbWords));
+            cardinalities[i] = verticalRepresentation[i].cardinality();
+        }
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = chunks[c].asReadOnlyBuffer();
+        }
+    }
+
+    private OffHeapVerticalStorage(int nbTransactions, int[] cardinalities, LongBuffer[] chunks) {
+        this.nbTransactions = nbTransactions;
+        this.cardinalities = cardinalities;
+        this.chunks = chunks;
+        nbWords = (nbTransactions + 63) >>> 6;
+        itemsPerChunk = computeItemsPerChunk(nbWords);
+    }
+
+    private static int computeItemsPerChunk(int nbWords) {
+        return Math.max(1, MAX_CHUNK_WORDS / Math.max(1, nbWords));
+    }
+
+    /**
+     * @param nbItems number of items
+     * @return size of the header of a file which contains nbItems items (multiple of 8)
+     */
+    private static long headerSize(int nbItems) {
+        return ((8L + 4L * nbItems + 7) >>> 3) << 3;
+    }
+
+    /**
+     * Write the storage in a file, which can then be mapped with {@link #map(Path)}
+     * @param file path of the file
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate((int) headerSize(cardinalities.length))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(cardinalities.length).putInt(nbTransactions);
+            for (int cardinality : cardinalities) {
+                header.putInt(cardinality);
+            }
+            header.clear();
+            writeFully(channel, header);
+            ByteBuffer buffer = ByteBuffer.allocate(8 * Math.min(nbWords, 1 << 16)).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < cardinalities.length; i++) {
+                LongBuffer chunk = chunks[i / itemsPerChunk].duplicate();
+                int start = (i % itemsPerChunk) * nbWords;
+                for (int from = 0; from < nbWords; from += buffer.capacity() >>> 3) {
+                    int length = Math.min(buffer.capacity() >>> 3, nbWords - from);
+                    buffer.clear();
+                    for (int k = 0; k < length; k++) {
+                        buffer.putLong(chunk.get(start + from + k));
+                    }
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                }
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Map in memory a file written with {@link #write(Path)} (the file is only read, the pages are loaded by the
+     * operating system when they are accessed)
+     * @param file path of the file
+     * @return the storage
+     * @throws IOException if the file can't be read
+     */
+    public static OffHeapVerticalStorage map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            int nbItems = header.getInt(0);
+            int nbTransactions = header.getInt(4);
+            ByteBuffer cardinalityBuffer = ByteBuffer.allocate(4 * nbItems).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, cardinalityBuffer, 8);
+            cardinalityBuffer.flip();
+            int[] cardinalities = new int[nbItems];
+            cardinalityBuffer.asIntBuffer().get(cardinalities);
+            int nbWords = (nbTransactions + 63) >>> 6;
+            int itemsPerChunk = computeItemsPerChunk(nbWords);
+            LongBuffer[] chunks = new LongBuffer[(nbItems + itemsPerChunk - 1) / itemsPerChunk];
+            long position = headerSize(nbItems);
+            for (int c = 0; c < chunks.length; c++) {
+                long size = 8L * Math.min(itemsPerChunk, nbItems - c * itemsPerChunk) * nbWords;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                chunks[c] = buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                position += size;
+            }
+            return new OffHeapVerticalStorage(nbTransactions, cardinalities, chunks);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    @Override
+    public int getNbItems() {
+        return cardinalities.length;
+    }
+
+    @Override
+    public int getNbTransactions() {
+        return nbTransactions;
+    }
+
+    @Override
+    public long getWord(int item, int wordIndex) {
+        if (wordIndex >= nbWords) {
+            return 0;
+        }
+        return chunks[item / itemsPerChunk].get((item % itemsPerChunk) * nbWords + wordIndex);
+    }
+
+    @Override
+    public int cardinality(int item) {
+        return cardinalities[item];
+    }
+
+    @Override
+    public BitSet toBitSet(int item) {
+        long[] words = new long[nbWords];
+        LongBuffer chunk = chunks[item / itemsPerChunk].duplicate();
+        chunk.position((item % itemsPerChunk) * nbWords);
+        chunk.get(words);
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * @return number of bytes stored outside of the heap
+     */
+    @Override
+    public long getSizeInBytes() {
+        return 8L * cardinalities.length * nbWords;
+    }
+}
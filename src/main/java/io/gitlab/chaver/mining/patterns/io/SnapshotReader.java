@@ -0,0 +1,125 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+import static io.gitlab.chaver.mining.patterns.io.SnapshotWriter.MAGIC;
+import static io.gitlab.chaver.mining.patterns.io.SnapshotWriter.VERSION;
+
+/**
+ * Read a database from a binary snapshot file (see {@link SnapshotWriter} for the format) : the file is
+ * memory-mapped and the words of the vertical representation are copied without parsing.
+ * The values of the items are stored in the snapshot, so no value file is read.
+ */
+public class SnapshotReader extends DataReader {
+
+    private static final int HEADER_SIZE = 6;
+    /** Max number of bytes mapped at once */
+    private static final long MAX_MAPPED_SIZE = 1 << 30;
+
+    public SnapshotReader(String dataPath, int nbValueMeasures) {
+        super(dataPath, nbValueMeasures);
+    }
+
+    public SnapshotReader(String dataPath, int nbValueMeasures, boolean noClasses) {
+        super(dataPath, nbValueMeasures, noClasses);
+    }
+
+    public SnapshotReader(String dataPath) {
+        super(dataPath);
+    }
+
+    @Override
+    public TransactionalDatabase read() throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(dataPath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            IntBuffer header = map(channel, 0, Math.min(size, MAX_MAPPED_SIZE)).asIntBuffer();
+            if (size < HEADER_SIZE * Integer.BYTES || header.get() != MAGIC) {
+                throw new IOException(dataPath + " is not a snapshot file");
+            }
+            int version = header.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + dataPath);
+            }
+            nbItems = header.get();
+            nbTransactions = header.get();
+            int nbClass = header.get();
+            int nbStoredMeasures = header.get();
+            if (nbTransactions < 0 || nbStoredMeasures < 0) {
+                throw new IOException(dataPath + " is not a snapshot file");
+            }
+            if (nbStoredMeasures < nbValueMeasures) {
+                throw new IOException("The snapshot " + dataPath + " contains only " + nbStoredMeasures +
+                        " value measures (" + nbValueMeasures + " required)");
+            }
+            int[] items = readInts(header, nbItems);
+            int[][] values = new int[nbValueMeasures][];
+            for (int i = 0; i < nbStoredMeasures; i++) {
+                int[] measureValues = readInts(header, readInts(header, 1)[0]);
+                if (i < nbValueMeasures) {
+                    values[i] = measureValues;
+                }
+            }
+            long position = (long) header.position() * Integer.BYTES;
+            position = (position + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+            BitSet[] data = readVerticalRepresentation(channel, position);
+            return new TransactionalDatabase(items, values, noClasses ? 0 : nbClass, data, nbTransactions);
+        }
+    }
+
+    /**
+     * Read the next n ints of the header
+     * @throws IOException if the header contains less than n ints
+     */
+    private int[] readInts(IntBuffer header, int n) throws IOException {
+        if (n < 0 || n > header.remaining()) {
+            throw new IOException("The snapshot " + dataPath + " is truncated");
+        }
+        int[] ints = new int[n];
+        header.get(ints);
+        return ints;
+    }
+
+    private BitSet[] readVerticalRepresentation(FileChannel channel, long position) throws IOException {
+        int nbWords = (nbTransactions + 63) >>> 6;
+        long columnSize = (long) nbWords * Long.BYTES;
+        if (position + columnSize * nbItems > channel.size()) {
+            throw new IOException("The snapshot " + dataPath + " is truncated");
+        }
+        // Columns are mapped by groups such that each mapped region is less than MAX_MAPPED_SIZE
+        int columnsPerRegion = (int) Math.max(1, MAX_MAPPED_SIZE / Math.max(columnSize, 1));
+        BitSet[] data = new BitSet[nbItems];
+        for (int first = 0; first < nbItems; first += columnsPerRegion) {
+            int last = Math.min(nbItems, first + columnsPerRegion);
+            LongBuffer region = map(channel, position + first * columnSize, (last - first) * columnSize).asLongBuffer();
+            for (int i = first; i < last; i++) {
+                int start = (i - first) * nbWords;
+                region.limit(start + nbWords).position(start);
+                data[i] = BitSet.valueOf(region);
+            }
+        }
+        return data;
+    }
+
+    private MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Write a database in the binary snapshot format, which can be loaded without parsing by a {@link SnapshotReader}.
+ * Layout of the file (little endian) :
+ * - header : magic number, version, nbItems, nbTransactions, nbClass, nbValueMeasures (6 ints)
+ * - items : nbItems ints
+ * - values : for each measure, the number of values (int) followed by the values (ints)
+ * - padding to align the next section on 8 bytes
+ * - vertical representation : for each item, ceil(nbTransactions / 64) words (longs)
+ */
+public class SnapshotWriter {
+
+    /** Magic number at the beginning of a snapshot file ("CMSP") */
+    public static final int MAGIC = 0x434D5350;
+    /** Version of the snapshot format */
+    public static final int VERSION = 1;
+    /** Extension of snapshot files */
+    public static final String EXTENSION = "snap";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Write the database in a snapshot file. The number of classes is the one of the database : to keep the classes,
+     * the database must be read with noClasses = false.
+     * @param database database to write
+     * @param path path of the snapshot file
+     * @throws IOException if the file can't be written, or if the transactions or the items of the database have been
+     * reorganized (the snapshot format can't represent merged, removed or permuted transactions, nor merged items)
+     */
+    public static void write(TransactionalDatabase database, String path) throws IOException {
+        if (!database.hasOriginalRows()) {
+            throw new IOException("A database whose transactions have been merged, removed or permuted can't be " +
+                    "written in a snapshot");
+        }
+        if (database.getMergedItemIds() != null) {
+            throw new IOException("A database whose items have been merged can't be written in a snapshot");
+        }
+        int nbItems = database.getNbItems();
+        int nbWords = (database.getNbRows() + 63) >>> 6;
+        int[][] values = database.getValues();
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long position = 0;
+            int[] header = {MAGIC, VERSION, nbItems, database.getNbTransactions(), database.getNbClass(), values.length};
+            for (int v : header) {
+                position += putInt(channel, buffer, v);
+            }
+            for (int item : database.getItems()) {
+                position += putInt(channel, buffer, item);
+            }
+            for (int[] measureValues : values) {
+                position += putInt(channel, buffer, measureValues.length);
+                for (int v : measureValues) {
+                    position += putInt(channel, buffer, v);
+                }
+            }
+            while (position % Long.BYTES != 0) {
+                position += putInt(channel, buffer, 0);
+            }
+            for (int i = 0; i < nbItems; i++) {
+                long[] words = database.getCover(i).toLongArray();
+                for (int k = 0; k < nbWords; k++) {
+                    if (buffer.remaining() < Long.BYTES) flush(channel, buffer);
+                    buffer.putLong(k < words.length ? words[k] : 0);
+                }
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static int putInt(FileChannel channel, ByteBuffer buffer, int v) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) flush(channel, buffer);
+        buffer.putInt(v);
+        return Integer.BYTES;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Convert a data file in a snapshot file
+     * @param args path of the data file (.dat or .txt for 0-1 data), number of value measures and path of the snapshot
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage : SnapshotWriter <data path> <nb value measures> <snapshot path>");
+            System.exit(1);
+        }
+        int nbValueMeasures = Integer.parseInt(args[1]);
+        DataReader reader = args[0].endsWith(".txt") ? new BinReader(args[0], nbValueMeasures) :
+                new StreamingDatReader(args[0], nbValueMeasures);
+        write(reader.read(), args[2]);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+
+/**
+ * Read a file with number of items (same format as {@link DatReader}) in a single pass :
+ * - the bytes of the file are parsed directly (no String is created for the lines or the items)
+ * - each item is mapped to an index with a primitive dictionary
+ * - the vertical representation is built incrementally while the transactions are read
+ * Items are sorted by their name at the end of the reading, so the database is the same as with a DatReader.
+ */
+public class StreamingDatReader extends DataReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public StreamingDatReader(String dataPath, int numberOfValueMeasures) {
+        super(dataPath, numberOfValueMeasures);
+    }
+
+    public StreamingDatReader(String dataPath, int numberOfValueMeasures, boolean noClasses) {
+        super(dataPath, numberOfValueMeasures, noClasses);
+    }
+
+    public StreamingDatReader(String dataPath) {
+        super(dataPath);
+    }
+
+    @Override
+    public TransactionalDatabase read() throws IOException {
+        DatParser parser = new DatParser(dataPath);
+        try (InputStream in = new FileInputStream(dataPath)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                parser.parse(buffer, 0, n);
+            }
+        }
+        parser.finish();
+        nbTransactions = parser.nbTransactions;
+        int[] names = parser.dictionary.getItems();
+        nbItems = names.length;
+        int[] order = DatParser.sortOrder(names);
+        int[] sortedItems = new int[nbItems];
+        int maxClass = 1;
+        for (int i = 0; i < nbItems; i++) {
+            sortedItems[i] = names[order[i]];
+            if (parser.firstItems.get(order[i])) {
+                maxClass = i + 1;
+            }
+        }
+        BitSet[] data = parser.columns.toBitSets(order);
+        return new TransactionalDatabase(sortedItems, readValueFiles(), noClasses ? 0 : maxClass, data, nbTransactions);
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
  * Represents a transactional database where each transaction is a set of items
@@ -25,10 +26,28 @@ public class TransactionalDatabase {
     private int[][] values;
     /** Number of classes */
     private int nbClass;
-    /** Vertical representation of the dataset */
+    /** Vertical representation of the dataset (null if the database is backed by a storage) */
     private BitSet[] verticalRepresentation;
+    /** Storage of the vertical representation (null if the database is not backed by a storage) */
+    private VerticalStorage verticalStorage;
+    /** TRUE if the database has been created from a storage (the covers are read from the storage) */
+    private boolean backedByStorage;
     /** Number of transactions in the dataset */
     private int nbTransactions;
+    /** Number of rows of the vertical representation (less than nbTransactions if duplicates have been merged) */
+    private int nbRows;
+    /** Number of transactions merged in each row (null if each row is a single transaction) */
+    private int[] weights;
+    /** Original index of the transactions of each row (null if the transactions have not been reorganized) */
+    private int[] transactionIds;
+    /** The transactions of the row r are transactionIds[rowOffsets[r]..rowOffsets[r+1]-1] (null if weights is null) */
+    private int[] rowOffsets;
+    /** Ids of the original items represented by each item (null if each item only represents itself) */
+    private int[][] mergedItemIds;
+    /** Vertical representation as words, shared by all the constraints which use this database */
+    private long[][] dataset;
+    /** Items of each row (sorted indexes of the items), built lazily */
+    private int[][] horizontalRepresentation;
     /** Map each item to its position in items array */
     private Map<Integer, Integer> itemsMap;
 
@@ -38,12 +57,130 @@ public class TransactionalDatabase {
         this.nbClass = nbClass;
         this.verticalRepresentation = verticalRepresentation;
         this.nbTransactions = nbTransactions;
+        this.nbRows = nbTransactions;
     }
 
+    /**
+     * Create a database whose transactions have been permuted
+     * @param transactionIds original index of each transaction
+     */
+    public TransactionalDatabase(int[] items, int[][] values, int nbClass, BitSet[] verticalRepresentation,
+                                 int nbTransactions, int[] transactionIds) {
+        this(items, values, nbClass, verticalRepresentation, nbTransactions);
+        this.transactionIds = transactionIds;
+    }
+
+    /**
+     * Create a database where each row represents one or several identical transactions
+     * @param nbRows number of rows of the vertical representation
+     * @param transactionIds original index of the transactions, grouped by row
+     * @param rowOffsets the transactions of the row r are transactionIds[rowOffsets[r]..rowOffsets[r+1]-1]
+     *                   (nbRows + 1 offsets)
+     */
+    public TransactionalDatabase(int[] items, int[][] values, int nbClass, BitSet[] verticalRepresentation,
+                                 int nbRows, int[] transactionIds, int[] rowOffsets) {
+        this(items, values, nbClass, verticalRepresentation, transactionIds.length, transactionIds);
+        this.nbRows = nbRows;
+        this.rowOffsets = rowOffsets;
+        weights = new int[nbRows];
+        for (int r = 0; r < nbRows; r++) {
+            weights[r] = rowOffsets[r + 1] - rowOffsets[r];
+        }
+    }
+
+    /**
+     * Create a database whose vertical representation is stored in verticalStorage
+     */
+    public TransactionalDatabase(int[] items, int[][] values, int nbClass, VerticalStorage verticalStorage) {
+        this.items = items;
+        this.values = values;
+        this.nbClass = nbClass;
+        this.verticalStorage = verticalStorage;
+        this.backedByStorage = true;
+        this.nbTransactions = verticalStorage.getNbTransactions();
+        this.nbRows = nbTransactions;
+    }
+
+    /**
+     * Create a copy of this database where the vertical representation is stored in a
+     * {@link CompressedVerticalStorage}
+     * @param arrayDensity max density of the array containers
+     * @param runDensity max density of runs of the run containers
+     * @return the compressed database
+     */
+    public TransactionalDatabase compress(double arrayDensity, double runDensity) {
+        return withStorage(new CompressedVerticalStorage(covers(), nbRows, arrayDensity, runDensity));
+    }
+
+    /**
+     * Create a copy of this database where the vertical representation is stored outside of the heap in an
+     * {@link OffHeapVerticalStorage}
+     * @return the database stored outside of the heap
+     */
+    public TransactionalDatabase offHeap() {
+        return withStorage(new OffHeapVerticalStorage(covers(), nbRows));
+    }
+
+    /**
+     * Create a copy of this database where the vertical representation is stored in verticalStorage
+     * @param verticalStorage storage of the rows of this database
+     * @return the copy of this database
+     */
+    public TransactionalDatabase withStorage(VerticalStorage verticalStorage) {
+        TransactionalDatabase database = new TransactionalDatabase(items, values, nbClass, verticalStorage);
+        database.nbTransactions = nbTransactions;
+        database.weights = weights;
+        database.transactionIds = transactionIds;
+        database.rowOffsets = rowOffsets;
+        database.mergedItemIds = mergedItemIds;
+        return database;
+    }
+
+    /**
+     * Get the vertical representation as an array of bitsets, the database must not be backed by a storage (see
+     * {@link #getCover(int)})
+     * @return the cover of each item
+     * @throws IllegalStateException if the database is backed by a storage
+     */
     public BitSet[] getVerticalRepresentation() {
+        if (backedByStorage) {
+            throw new IllegalStateException("The covers of a database backed by a storage are not inflated in " +
+                    "bitsets, use getCover(item) or getVerticalStorage()");
+        }
         return verticalRepresentation;
     }
 
+    /**
+     * Get the cover of an item : the bitset of the vertical representation, or a new bitset read from the storage
+     * if the database is backed by a storage (it is not cached). In both cases the bitset must not be modified.
+     * @param item index of the item
+     * @return the cover of the item
+     */
+    public BitSet getCover(int item) {
+        return backedByStorage ? verticalStorage.toBitSet(item) : verticalRepresentation[item];
+    }
+
+    /**
+     * Get the storage of the vertical representation, the database must be backed by a storage (see
+     * {@link #compress(double, double)} and {@link #offHeap()})
+     * @return the storage of the vertical representation
+     * @throws IllegalStateException if the database is not backed by a storage
+     */
+    public VerticalStorage getVerticalStorage() {
+        if (!backedByStorage) {
+            throw new IllegalStateException("The database is not backed by a storage, use compress() or offHeap()");
+        }
+        return verticalStorage;
+    }
+
+    /**
+     * @return TRUE if the database has been created from a storage (compressed or off-heap), in this case the
+     * bitsets should read the covers from the storage
+     */
+    public boolean isBackedByStorage() {
+        return backedByStorage;
+    }
+
     public int[][] getValues() {
         return values;
     }
@@ -56,29 +193,159 @@ public class TransactionalDatabase {
         return nbClass;
     }
 
+    /**
+     * @return number of transactions of the database (the sum of the weights of the rows plus the number of empty
+     * transactions which have been removed)
+     */
     public int getNbTransactions() {
         return nbTransactions;
     }
 
+    /**
+     * @return number of rows of the vertical representation, i.e. number of bits of the covers
+     */
+    public int getNbRows() {
+        return nbRows;
+    }
+
+    /**
+     * @return the number of transactions of each row, or null if each row is a single transaction
+     */
+    public int[] getWeights() {
+        return weights;
+    }
+
     public int getNbItems() {
         return items.length;
     }
 
+    /**
+     * @param row index of a row of the database
+     * @return index of the transactions of the row in the original data file
+     */
+    public int[] getTransactionIds(int row) {
+        if (rowOffsets != null) {
+            return Arrays.copyOfRange(transactionIds, rowOffsets[row], rowOffsets[row + 1]);
+        }
+        return new int[]{transactionIds == null ? row : transactionIds[row]};
+    }
+
+    /**
+     * @param item index of an item of the database
+     * @return ids of the original items represented by the item (several ids if items which always occur together
+     * have been merged)
+     */
+    public int[] getItemIds(int item) {
+        return mergedItemIds != null ? mergedItemIds[item].clone() : new int[]{items[item]};
+    }
+
+    /**
+     * @return true if each row is a single transaction and the rows are all the transactions of the original data file,
+     * in the same order
+     */
+    boolean hasOriginalRows() {
+        if (weights != null || nbRows != nbTransactions) {
+            return false;
+        }
+        if (transactionIds != null) {
+            for (int r = 0; r < nbRows; r++) {
+                if (transactionIds[r] != r) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    int[][] getMergedItemIds() {
+        return mergedItemIds;
+    }
+
+    void setMergedItemIds(int[][] mergedItemIds) {
+        this.mergedItemIds = mergedItemIds;
+        itemsMap = null;
+    }
+
+    /**
+     * Set the number of transactions when some transactions are not represented by a row (empty transactions)
+     */
+    void setNbTransactions(int nbTransactions) {
+        this.nbTransactions = nbTransactions;
+    }
+
+    /**
+     * Get the vertical representation as words : the array is built the first time this method is called and
+     * then shared by all its callers, so it must not be modified. Each row has exactly ceil(nbRows / 64)
+     * words. The database must not be backed by a storage, whose covers are read word by word (see
+     * {@link #getVerticalStorage()}).
+     * @return the words of the cover of each item
+     * @throws IllegalStateException if the database is backed by a storage
+     */
     public long[][] getDatasetAsLongArray() {
-        long[][] dataset = new long[items.length][];
-        for (int i = 0; i < verticalRepresentation.length; i++) {
-            dataset[i] = verticalRepresentation[i].toLongArray();
+        if (backedByStorage) {
+            throw new IllegalStateException("The covers of a database backed by a storage are not inflated in " +
+                    "words, use getVerticalStorage()");
+        }
+        if (dataset == null) {
+            int nbWords = (nbRows + 63) >>> 6;
+            dataset = new long[items.length][];
+            for (int i = 0; i < items.length; i++) {
+                long[] words = verticalRepresentation[i].toLongArray();
+                dataset[i] = words.length == nbWords ? words : Arrays.copyOf(words, nbWords);
+            }
         }
         return dataset;
     }
 
+    /**
+     * Get the horizontal representation of the database : the array is built the first time this method is called
+     * and then shared by all its callers, so it must not be modified
+     * @return for each row, the sorted indexes of its items
+     */
+    public int[][] getHorizontalRepresentation() {
+        if (horizontalRepresentation == null) {
+            int[] sizes = new int[nbRows];
+            for (int i = 0; i < items.length; i++) {
+                BitSet cover = getCover(i);
+                for (int t = cover.nextSetBit(0); t >= 0; t = cover.nextSetBit(t + 1)) {
+                    sizes[t]++;
+                }
+            }
+            horizontalRepresentation = new int[nbRows][];
+            for (int t = 0; t < nbRows; t++) {
+                horizontalRepresentation[t] = new int[sizes[t]];
+            }
+            Arrays.fill(sizes, 0);
+            for (int i = 0; i < items.length; i++) {
+                BitSet cover = getCover(i);
+                for (int t = cover.nextSetBit(0); t >= 0; t = cover.nextSetBit(t + 1)) {
+                    horizontalRepresentation[t][sizes[t]++] = i;
+                }
+            }
+        }
+        return horizontalRepresentation;
+    }
+
+    /**
+     * @return number of bytes used by the shared dataset (see {@link #getDatasetAsLongArray()}), or by the storage
+     * if the database is backed by a storage
+     */
+    public long getDatasetSizeInBytes() {
+        if (backedByStorage) {
+            return verticalStorage.getSizeInBytes();
+        }
+        // 16 bytes for the header of each array and 8 bytes for each reference to a row
+        return 16 + (long) items.length * (16 + 8L * ((nbRows + 63) >>> 6) + 8);
+    }
+
     public double getDensity() {
-        double nbSetTransactions = Arrays.stream(verticalRepresentation).mapToInt(BitSet::cardinality).sum();
-        return nbSetTransactions / (items.length * nbTransactions);
+        double nbSetTransactions = Arrays.stream(computeItemFreq()).asLongStream().sum();
+        return nbSetTransactions / ((double) items.length * nbTransactions);
     }
 
     /**
-     * Associate each item to its index in the array
+     * Associate each item to its index in the array (the ids of the items represented by a merged item are associated
+     * to the index of the merged item)
      * @return map
      */
     public Map<Integer, Integer> getItemsMap() {
@@ -86,17 +353,22 @@ public class TransactionalDatabase {
             itemsMap = new HashMap<>();
             for (int i = 0; i < items.length; i++) {
                 itemsMap.put(items[i], i);
+                if (mergedItemIds != null) {
+                    for (int id : mergedItemIds[i]) {
+                        itemsMap.put(id, i);
+                    }
+                }
             }
         }
         return itemsMap;
     }
 
     /**
-     * Compute the frequency of each item
+     * Compute the frequency of each item (i.e. the sum of the weights of the rows which contain the item)
      * @return an array with the frequency of each item
      */
     public int[] computeItemFreq() {
-        return Arrays.stream(verticalRepresentation).mapToInt(BitSet::cardinality).toArray();
+        return IntStream.range(0, items.length).map(this::cardinality).toArray();
     }
 
     /**
@@ -105,8 +377,29 @@ public class TransactionalDatabase {
      * the second one represents the number of transactions that are not in the first class
      */
     public int[] getClassCount() {
-        int d1 = verticalRepresentation[0].cardinality();
+        int d1 = cardinality(0);
         int d2 = nbTransactions - d1;
         return new int[]{d1, d2};
     }
+
+    /**
+     * @return the vertical representation, or a copy of the covers read from the storage which isn't kept by this
+     * database
+     */
+    private BitSet[] covers() {
+        return backedByStorage ? IntStream.range(0, items.length).mapToObj(this::getCover).toArray(BitSet[]::new) :
+                verticalRepresentation;
+    }
+
+    private int cardinality(int item) {
+        if (weights != null) {
+            BitSet cover = getCover(item);
+            int sum = 0;
+            for (int r = cover.nextSetBit(0); r >= 0; r = cover.nextSetBit(r + 1)) {
+                sum += weights[r];
+            }
+            return sum;
+        }
+        return backedByStorage ? verticalStorage.cardinality(item) : verticalRepresentation[item].cardinality();
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import java.util.BitSet;
+
+/**
+ * Storage of the vertical representation of a database : the cover of each item can be accessed word by word
+ * (a word contains 64 transactions) without building the whole bitset of the item.
+ */
+public interface VerticalStorage {
+
+    int getNbItems();
+
+    int getNbTransactions();
+
+    /**
+     * Get a word of the cover of an item
+     * @param item index of the item
+     * @param wordIndex index of the word
+     * @return the bits of the transactions [64 * wordIndex, 64 * wordIndex + 63] (0 if wordIndex is out of bounds)
+     */
+    long getWord(int item, int wordIndex);
+
+    /**
+     * @param item index of the item
+     * @return number of transactions which contain the item
+     */
+    int cardinality(int item);
+
+    /**
+     * @param item index of the item
+     * @return the cover of the item as a bitset
+     */
+    BitSet toBitSet(int item);
+
+    /**
+     * @return approximate number of bytes used by the storage
+     */
+    long getSizeInBytes();
+}
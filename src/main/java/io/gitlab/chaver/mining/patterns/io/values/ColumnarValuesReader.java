@@ -0,0 +1,177 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io.values;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Read the values of items directly in int columns : each value is parsed as a fixed-point decimal, multiplied by
+ * 100 and truncated (as {@link DoubleValuesReader} does), without creating any object per line.
+ * The values can be stored in :
+ * - one file per measure (e.g. zoo.val0, zoo.val1 for zoo.dat), these files are read in parallel
+ * - a single multi-column file (e.g. zoo.vals), where the line i contains the values of the item i for each measure
+ *   separated by spaces or tabs. If this file exists, it is read instead of the files of each measure.
+ */
+public class ColumnarValuesReader implements IValuesReader {
+
+    /** Extension of the multi-column values file */
+    public static final String MULTI_COLUMN_EXTENSION = "vals";
+    /** Number of fraction digits kept in the values */
+    private static final int FRACTION_DIGITS = 2;
+    /** Max number of integer digits such that the value can be computed in a long */
+    private static final int MAX_INTEGER_DIGITS = 16;
+
+    private int nbValueMeasures;
+    private String extension;
+    private String dataPath;
+
+    public ColumnarValuesReader(int nbValueMeasures, String extension, String dataPath) {
+        this.nbValueMeasures = nbValueMeasures;
+        this.extension = extension;
+        this.dataPath = dataPath;
+    }
+
+    @Override
+    public int[][] readValueFiles() throws IOException {
+        if (nbValueMeasures == 0) {
+            return new int[0][];
+        }
+        String basePath = dataPath.substring(0, dataPath.length() - extension.length());
+        String valuePath = basePath + "val";
+        Path multiColumnPath = Paths.get(basePath + MULTI_COLUMN_EXTENSION);
+        if (Files.exists(multiColumnPath)) {
+            return parse(Files.readAllBytes(multiColumnPath), nbValueMeasures, multiColumnPath.toString());
+        }
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for (int i = 0; i < nbValueMeasures; i++) {
+            String path = valuePath + i;
+            tasks.add(() -> parse(Files.readAllBytes(Paths.get(path)), 1, path)[0]);
+        }
+        int[][] values = new int[nbValueMeasures][];
+        try {
+            List<Future<int[]>> results = ForkJoinPool.commonPool().invokeAll(tasks);
+            for (int i = 0; i < nbValueMeasures; i++) {
+                values[i] = results.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reading of the values of " + dataPath + " has been interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        return values;
+    }
+
+    /**
+     * Parse the lines of a values file
+     * @param bytes content of the file
+     * @param nbColumns number of columns to read in each line (other columns are ignored)
+     * @param path path of the file (used in error messages)
+     * @return the values of each column
+     * @throws IOException if a line contains less than nbColumns values or a value is not a number
+     */
+    static int[][] parse(byte[] bytes, int nbColumns, String path) throws IOException {
+        int[][] columns = new int[nbColumns][16];
+        int nbLines = 0;
+        int lineStart = 0;
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') lineEnd++;
+            if (nbLines == columns[0].length) {
+                for (int j = 0; j < nbColumns; j++) {
+                    columns[j] = Arrays.copyOf(columns[j], nbLines * 2);
+                }
+            }
+            int pos = lineStart;
+            for (int j = 0; j < nbColumns; j++) {
+                while (pos < lineEnd && isSpace(bytes[pos])) pos++;
+                int fieldStart = pos;
+                while (pos < lineEnd && !isSpace(bytes[pos])) pos++;
+                if (fieldStart == pos && j > 0) {
+                    throw new IOException("Line " + (nbLines + 1) + " of " + path + " contains " + j +
+                            " values (" + nbColumns + " required)");
+                }
+                try {
+                    columns[j][nbLines] = parseValue(bytes, fieldStart, pos);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid value at line " + (nbLines + 1) + " of " + path + " : " +
+                            new String(bytes, fieldStart, pos - fieldStart, StandardCharsets.US_ASCII), e);
+                }
+            }
+            nbLines++;
+            lineStart = lineEnd + 1;
+        }
+        for (int j = 0; j < nbColumns; j++) {
+            columns[j] = Arrays.copyOf(columns[j], nbLines);
+        }
+        return columns;
+    }
+
+    /**
+     * Parse a decimal value and multiply it by 100 (the digits after the second fraction digit are truncated).
+     * Values which are not plain decimals (e.g. 1e-3) are parsed with a BigDecimal.
+     * @param bytes bytes of the value
+     * @param from index of the first byte of the value
+     * @param to index after the last byte of the value
+     * @return the value multiplied by 100
+     */
+    static int parseValue(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = i < to && bytes[i] == '-';
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) i++;
+        long value = 0;
+        int nbIntegerDigits = 0;
+        while (i < to && isDigit(bytes[i])) {
+            value = value * 10 + (bytes[i++] - '0');
+            nbIntegerDigits++;
+        }
+        int nbFractionDigits = 0;
+        if (i < to && bytes[i] == '.') {
+            i++;
+            while (i < to && isDigit(bytes[i])) {
+                if (nbFractionDigits < FRACTION_DIGITS) {
+                    value = value * 10 + (bytes[i] - '0');
+                }
+                nbFractionDigits++;
+                i++;
+            }
+        }
+        if (i != to || nbIntegerDigits + nbFractionDigits == 0 || nbIntegerDigits > MAX_INTEGER_DIGITS) {
+            return new BigDecimal(new String(bytes, from, to - from, StandardCharsets.US_ASCII))
+                    .multiply(BigDecimal.valueOf(100))
+                    .intValue();
+        }
+        for (int k = nbFractionDigits; k < FRACTION_DIGITS; k++) {
+            value *= 10;
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
@@ -27,6 +27,8 @@ import org.chocosolver.util.tools.ArrayUtils;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 
+import java.util.BitSet;
+
 import static io.gitlab.chaver.mining.patterns.measure.MeasureFactory.*;
 
 @Command(name = "cpsky", mixinStandardHelpOptions = true, description = "CP+SKY implementation")
@@ -40,21 +42,51 @@ public class CpSky extends PatternProblem {
         return new Model("CP+SKY", Settings.prod());
     }
 
-    private int[][] row0() {
-        int[][] row0 = new int[database.getNbTransactions()][database.getNbItems()];
-        for (int i = 0; i < database.getNbTransactions(); i++) {
-            for (int j = 0; j < database.getNbItems(); j++) {
-                row0[i][j] = database.getVerticalRepresentation()[j].get(i) ? 0 : 1;
+    /**
+     * Items which are not in a transaction : the transaction is covered iff none of them is in the pattern
+     * @param t index of the transaction
+     * @return the variables of the items which are not in t
+     */
+    private BoolVar[] absentItems(int t) {
+        int[] row = database.getHorizontalRepresentation()[t];
+        BoolVar[] absentItems = new BoolVar[items.length - row.length];
+        int k = 0;
+        int nbAbsent = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (k < row.length && row[k] == i) {
+                k++;
+            } else {
+                absentItems[nbAbsent++] = items[i];
             }
         }
-        return row0;
+        return absentItems;
+    }
+
+    /**
+     * Transactions which are not in the cover of an item : the item is in the closure iff none of them is covered
+     * @param transactions variables of the transactions
+     * @param rows transactions which are considered
+     * @param cover cover of the item
+     * @return the variables of the transactions of rows which are not in cover
+     */
+    private BoolVar[] uncoveredTransactions(BoolVar[] transactions, BitSet rows, BitSet cover) {
+        BitSet uncovered = (BitSet) rows.clone();
+        uncovered.andNot(cover);
+        return uncovered.stream().mapToObj(t -> transactions[t]).toArray(BoolVar[]::new);
+    }
+
+    /**
+     * @param vars Boolean variables
+     * @return a variable which is equal to 1 iff all the variables are equal to 0
+     */
+    private BoolVar noneOf(BoolVar[] vars) {
+        return vars.length == 0 ? model.boolVar(true) : model.sum(vars, "=", 0).reify();
     }
 
     private void transactionVars() {
-        transactions = model.boolVarArray("transactions", database.getNbTransactions());
-        int[][] row0 = row0();
-        for (int i = 0; i < database.getNbTransactions(); i++) {
-            transactions[i] = model.scalar(items, row0[i], "=", 0).reify();
+        transactions = model.boolVarArray("transactions", database.getNbRows());
+        for (int i = 0; i < database.getNbRows(); i++) {
+            transactions[i] = noneOf(absentItems(i));
         }
     }
 
@@ -63,16 +95,16 @@ public class CpSky extends PatternProblem {
         transactionVars();
         String freqId = freq().getId();
         IntVar freq = model.intVar(freqId, freqMin, database.getNbTransactions());
-        model.count(1, transactions, freq).post();
+        countTransactions(transactions, freq);
         measureVars.put(freqId, freq);
     }
 
     private void transactions1Var() {
-        transactions1 = model.boolVarArray("transactions1", database.getNbTransactions());
-        int[][] row0 = row0();
-        for (int i = 0; i < database.getNbTransactions(); i++) {
-            if (database.getVerticalRepresentation()[0].get(i)) {
-                transactions1[i] = model.scalar(items, row0[i], "=", 0).reify();
+        transactions1 = model.boolVarArray("transactions1", database.getNbRows());
+        BitSet class1 = database.getCover(0);
+        for (int i = 0; i < database.getNbRows(); i++) {
+            if (class1.get(i)) {
+                transactions1[i] = noneOf(absentItems(i));
             }
             else {
                 model.arithm(transactions1[i], "=", 0).post();
@@ -85,10 +117,23 @@ public class CpSky extends PatternProblem {
         transactions1Var();
         String freq1Id = freq1().getId();
         IntVar freq1 = model.intVar(freq1Id, 0, database.getClassCount()[0]);
-        model.count(1, transactions1, freq1).post();
+        countTransactions(transactions1, freq1);
         measureVars.put(freq1Id, freq1);
     }
 
+    /**
+     * Post a constraint such that count is the number of transactions of the rows set to 1 (the rows have a weight
+     * if duplicate transactions have been merged)
+     */
+    private void countTransactions(BoolVar[] rows, IntVar count) {
+        if (database.getWeights() == null) {
+            model.count(1, rows, count).post();
+        }
+        else {
+            model.scalar(rows, database.getWeights(), "=", count).post();
+        }
+    }
+
     @Override
     protected TransactionGetter transactionGetter() {
         return new CpSkyTransactionGetter(transactions);
@@ -108,23 +153,21 @@ public class CpSky extends PatternProblem {
             model.arithm(items[i], "=", closedExpression[i]).post();
         }
         int[] itemFreq = database.computeItemFreq();
+        BitSet allRows = new BitSet(database.getNbRows());
+        allRows.set(0, database.getNbRows());
+        // The transactions which are not in the first class are never in transactions1
+        BitSet class1 = database.getCover(0);
         for (int i = database.getNbClass(); i < database.getNbItems(); i++) {
-            int[] colFreq = new int[database.getNbTransactions()];
-            int[] colFreq1 = new int[database.getNbTransactions()];
-            for (int j = 0; j < database.getNbTransactions(); j++) {
-                int colValue = database.getVerticalRepresentation()[i].get(j) ? 0 : 1;
-                colFreq[j] = colValue;
-                colFreq1[j] = database.getVerticalRepresentation()[0].get(j) ? colValue : 1;
-            }
+            BitSet cover = database.getCover(i);
             for (int j = 0; j < nbClosedMeasures; j++) {
                 Measure m = closedMeasures.get(j);
                 // FREQUENT CLOSED
                 if (m.getClass() == Freq.class) {
-                    isClosedFor[j][i] = model.scalar(transactions, colFreq, "=", 0).reify();
+                    isClosedFor[j][i] = noneOf(uncoveredTransactions(transactions, allRows, cover));
                 }
                 // FREQUENT1 CLOSED
                 else if (m.getClass() == Freq1.class) {
-                    isClosedFor[j][i] = model.scalar(transactions1, colFreq1, "=", 0).reify();
+                    isClosedFor[j][i] = noneOf(uncoveredTransactions(transactions1, class1, cover));
                 }
                 // MIN CLOSED
                 else if (m.getClass() == Min.class) {
@@ -17,7 +17,10 @@ import io.gitlab.chaver.chocotools.util.ISolutionProvider;
 import io.gitlab.chaver.mining.patterns.constraints.PropCoverSize;
 import io.gitlab.chaver.mining.patterns.constraints.PropFrequentSubs;
 import io.gitlab.chaver.mining.patterns.constraints.PropInfrequentSupers;
-import io.gitlab.chaver.mining.patterns.io.DatReader;
+import io.gitlab.chaver.mining.patterns.io.CompressedVerticalStorage;
+import io.gitlab.chaver.mining.patterns.io.DataReaderFactory;
+import io.gitlab.chaver.mining.patterns.io.DatabasePreprocessor;
+import io.gitlab.chaver.mining.patterns.io.DatabaseReorganizer;
 import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
 import io.gitlab.chaver.mining.patterns.io.Pattern;
 import io.gitlab.chaver.mining.patterns.io.PatternProblemProperties;
@@ -27,8 +30,12 @@ import io.gitlab.chaver.mining.patterns.measure.operand.MeasureOperand;
 import io.gitlab.chaver.mining.patterns.measure.pattern.*;
 import io.gitlab.chaver.mining.patterns.search.loop.monitors.SkypatternMonitor;
 import io.gitlab.chaver.mining.patterns.search.strategy.selectors.variables.*;
+import io.gitlab.chaver.mining.patterns.util.BitSetSelector;
+import io.gitlab.chaver.mining.patterns.util.ConstraintSettings;
 import io.gitlab.chaver.mining.patterns.util.MeasureListConverter;
+import io.gitlab.chaver.mining.patterns.util.MemoryReport;
 import io.gitlab.chaver.mining.patterns.util.PatternCreator;
+import io.gitlab.chaver.mining.patterns.util.StorageBitSetFacade;
 import io.gitlab.chaver.mining.patterns.util.TransactionGetter;
 import org.chocosolver.solver.constraints.Constraint;
 import org.chocosolver.solver.expression.discrete.relational.ReExpression;
@@ -51,7 +58,8 @@ import static io.gitlab.chaver.mining.patterns.measure.MeasureFactory.*;
 
 public abstract class PatternProblem extends ChocoProblem<Pattern, PatternProblemProperties> {
 
-    @Option(names = "-d", required = true, description = "Path of the transactional database")
+    @Option(names = "-d", required = true, description = "Path of the transactional database (.dat file or .snap " +
+            "snapshot)")
     private String dataPath;
     @Option(names = "--skym", description = "Skypattern measures", converter = MeasureListConverter.class,
             paramLabel = "<skym>")
@@ -95,14 +103,39 @@ public abstract class PatternProblem extends ChocoProblem<Pattern, PatternProble
     private int lds;
     @Option(names = "--ifmax", description = "Max frequency of items (absolute value)")
     private int itemsMaxFreq;
+    @Option(names = "--iorder", description = "Sort the items by support at load time (asc or desc)")
+    private String itemOrder;
+    @Option(names = "--dedup", description = "Merge identical transactions at load time (the frequency of a " +
+            "pattern is computed with the number of merged transactions)")
+    private boolean mergeDuplicates;
+    @Option(names = "--tcluster", description = "Sort the transactions at load time such that similar transactions " +
+            "are next to each other")
+    private boolean clusterTransactions;
+    @Option(names = "--prep", description = "Reduce the database at load time : remove the empty transactions, and " +
+            "when it doesn't modify the solutions, remove the infrequent items and merge the items which always occur " +
+            "together (the excluded items are kept to compute the closure of the patterns)")
+    private boolean preprocess;
+    @Option(names = "--mem", description = "Print the memory used by the dataset and the model")
+    private boolean memoryReport;
+    @Option(names = "--ublook", description = "Number of free items examined by the pair-based lookahead of " +
+            "CoverSize w.r.t. the max frequency of the pattern (default : ${DEFAULT-VALUE})", defaultValue = "0")
+    private int coverSizeLookahead;
+    @Option(names = "--bitset", description = "Type of the bitsets of the covers (sparse, compressed, trailed, " +
+            "dense, hierarchical, or auto to select it from the database), the database is compressed if the type " +
+            "is compressed (default : ${DEFAULT-VALUE})",
+            defaultValue = BitSetSelector.TYPE)
+    private String bitSetType;
 
     private String[] labels;
 
     private List<Measure> allMeasures;
     protected TransactionalDatabase database;
+    /** Database whose items are in the same order as the labels */
+    private TransactionalDatabase labelsDatabase;
     private ISolutionProvider<Pattern> solutionProvider;
     private int[] zeroItems;
     private int[] requiredItems;
+    private MemoryReport memory;
 
     // CP variables
     protected BoolVar[] items;
@@ -279,33 +312,85 @@ public abstract class PatternProblem extends ChocoProblem<Pattern, PatternProble
                 .max()
                 .orElse(-1);
         try {
-            database = new DatReader(dataPath, idxValMeasure + 1, noClasses).read();
+            database = DataReaderFactory.getReader(dataPath, idxValMeasure + 1, noClasses).read();
             if (relativeFreqMin > 0) {
                 freqMin = (int) (database.getNbTransactions() * relativeFreqMin);
             }
+            if (labelsPath != null) {
+                labels = Files.readAllLines(Paths.get(labelsPath), StandardCharsets.UTF_8).toArray(new String[0]);
+                labelsDatabase = database;
+            }
+            int[] zeroItemIds = zeroItemsPath != null ? readItemIds(zeroItemsPath) : null;
+            if (preprocess) {
+                database = preprocessor().preprocess(database);
+            }
+            if (itemOrder != null) {
+                database = DatabaseReorganizer.permuteItems(database,
+                        DatabaseReorganizer.sortItemsBySupport(database, itemOrder));
+            }
+            if (mergeDuplicates) {
+                database = DatabaseReorganizer.mergeDuplicateTransactions(database);
+            }
+            // The merged rows are already sorted like clustered transactions
+            if (clusterTransactions && !mergeDuplicates) {
+                database = DatabaseReorganizer.clusterTransactions(database);
+            }
+            // The bitsets of type compressed read the covers from the storage of the database
+            if (bitSetType.equals(StorageBitSetFacade.TYPE)) {
+                database = database.compress(CompressedVerticalStorage.DEFAULT_ARRAY_DENSITY,
+                        CompressedVerticalStorage.DEFAULT_RUN_DENSITY);
+            }
             Map<Integer, Integer> itemsMap = database.getItemsMap();
-            if (zeroItemsPath != null) {
-                zeroItems = Files
-                        .readAllLines(Paths.get(zeroItemsPath), StandardCharsets.UTF_8)
-                        .stream()
-                        .mapToInt(s -> itemsMap.get(Integer.parseInt(s)))
+            if (zeroItemIds != null) {
+                // The excluded items removed by the preprocessing are infrequent, so they can't be in a solution
+                zeroItems = Arrays.stream(zeroItemIds)
+                        .filter(id -> !preprocess || itemsMap.containsKey(id))
+                        .map(itemsMap::get)
                         .toArray();
             }
             if (requiredItemsPath != null) {
-                requiredItems = Files
-                        .readAllLines(Paths.get(requiredItemsPath), StandardCharsets.UTF_8)
-                        .stream()
-                        .mapToInt(s -> itemsMap.get(Integer.parseInt(s)))
+                // The required items removed by the preprocessing can't be in a solution
+                requiredItems = Arrays.stream(readItemIds(requiredItemsPath))
+                        .filter(id -> !preprocess || itemsMap.containsKey(id))
+                        .map(itemsMap::get)
                         .toArray();
             }
-            if (labelsPath != null) {
-                labels = Files.readAllLines(Paths.get(labelsPath), StandardCharsets.UTF_8).toArray(new String[0]);
-            }
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             throw new SetUpException(e.getMessage(), e);
         }
     }
 
+    private int[] readItemIds(String path) throws IOException {
+        return Files
+                .readAllLines(Paths.get(path), StandardCharsets.UTF_8)
+                .stream()
+                .mapToInt(Integer::parseInt)
+                .toArray();
+    }
+
+    private DatabasePreprocessor preprocessor() {
+        DatabasePreprocessor preprocessor = new DatabasePreprocessor();
+        // The empty pattern is the only pattern which covers the empty transactions
+        preprocessor.setRemoveEmptyTransactions(lengthMin > 0);
+        if (miiSearch > -1) {
+            return preprocessor;
+        }
+        // An infrequent item can't be added to a frequent pattern without modifying its frequency
+        if (closedMeasures.stream().anyMatch(m -> m.getClass() == Freq.class)) {
+            preprocessor.setMinFreq(freqMin);
+        }
+        // A closed pattern contains either all the items with the same cover or none of them, unless a measure
+        // depends on the number of items or on their values (the excluded items are kept in the database since they
+        // are taken into account by the closure : an item merged with an excluded item is excluded too)
+        Set<Class<?>> coverMeasures = new HashSet<>(Arrays.asList(Freq.class, Freq1.class, Freq2.class,
+                FreqNeg.class, GrowthRate.class, MaxFreq.class, MinFreq.class, AllConf.class, AnyConf.class));
+        preprocessor.setMergeEquivalentItems(lengthMin <= 1 && lengthMax == 0 && Stream
+                .of(closedMeasures, allMeasures)
+                .flatMap(Collection::stream)
+                .allMatch(m -> coverMeasures.contains(m.getClass())));
+        return preprocessor;
+    }
+
     private void zeroItemsConstraint() {
         if (zeroItems == null) return;
         Arrays.stream(zeroItems).forEach(i -> items[i].eq(0).post());
@@ -330,6 +415,12 @@ public abstract class PatternProblem extends ChocoProblem<Pattern, PatternProble
 
     @Override
     public void buildModel() throws BuildModelException {
+        if (memoryReport) {
+            memory = new MemoryReport(database);
+            memory.start();
+        }
+        ConstraintSettings.COVER_SIZE_LOOKAHEAD = coverSizeLookahead;
+        ConstraintSettings.BITSET_TYPE = bitSetType;
         itemVars();
         itemsMaxFreqConstraint();
         zeroItemsConstraint();
@@ -347,6 +438,9 @@ public abstract class PatternProblem extends ChocoProblem<Pattern, PatternProble
                 items
         ));
         configureLDS();
+        if (memoryReport) {
+            memory.stop();
+        }
     }
 
     private void configureLDS() {
@@ -416,13 +510,14 @@ public abstract class PatternProblem extends ChocoProblem<Pattern, PatternProble
     protected void printStats() {
         super.printStats();
         if (skypatternMeasures.size() > 0) System.out.println("\tNb skypatterns : " + getSolutions().size());
+        if (memory != null) System.out.println(memory);
     }
 
     @Override
     protected void printSolutions() {
         List<String> allMeasuresId = allMeasures.stream().map(Measure::getId).collect(Collectors.toList());
         for (Pattern p : getSolutions()) {
-            System.out.println(p.toString(allMeasuresId, labels, database));
+            System.out.println(p.toString(allMeasuresId, labels, labelsDatabase));
         }
     }
 }
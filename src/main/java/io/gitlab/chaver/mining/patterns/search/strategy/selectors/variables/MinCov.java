@@ -11,39 +11,65 @@ package io.gitlab.chaver.mining.patterns.search.strategy.selectors.variables;
 
 import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
 import io.gitlab.chaver.mining.patterns.util.BitSetFacade;
-import io.gitlab.chaver.mining.patterns.util.RSparseBitSetFacade;
+import io.gitlab.chaver.mining.patterns.util.ConstraintSettings;
+import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.search.strategy.selectors.variables.VariableSelector;
 import org.chocosolver.solver.variables.IntVar;
 
+import java.util.stream.IntStream;
+
+import static io.gitlab.chaver.mining.patterns.util.BitSetFactory.getBitSet;
+
 /**
- * Select the item i such that freq(x+ U {i}) is minimal
+ * Select the item i such that freq(x+ U {i}) is minimal. Like the propagators, the heuristic keeps a reversible index
+ * of the free items : only the items instantiated since the parent node are intersected with the cover, and the counts
+ * are computed for the free items only.
  */
 public class MinCov implements VariableSelector<IntVar> {
 
     private final BitSetFacade cover;
+    private final int[] freeItems; // all items between [0, lastIndexFree[ are free
+    private final IStateInt lastIndexFree;
+    private final int[] counts; // counts[k] = freq(x+ U freeItems[k])
 
     public MinCov(Model model, TransactionalDatabase database) {
-        this.cover = new RSparseBitSetFacade(database, model, database.getNbTransactions());
+        this.cover = getBitSet(ConstraintSettings.BITSET_TYPE, database, model);
+        this.freeItems = IntStream.range(0, database.getNbItems()).toArray();
+        this.lastIndexFree = model.getEnvironment().makeInt(database.getNbItems());
+        this.counts = new int[database.getNbItems()];
     }
 
     @Override
     public IntVar getVariable(IntVar[] variables) {
-        for (int i = 0; i < variables.length; i++) {
-            if (variables[i].asBoolVar().isInstantiatedTo(1)) {
-                cover.and(i);
+        int nFree = lastIndexFree.get();
+        for (int i = nFree - 1; i >= 0; i--) {
+            int idx = freeItems[i];
+            if (variables[idx].isInstantiated()) {
+                nFree = removeItem(i, nFree, idx);
+                if (variables[idx].asBoolVar().isInstantiatedTo(1)) {
+                    cover.and(idx);
+                }
             }
         }
+        lastIndexFree.set(nFree);
+        cover.andCount(freeItems, 0, nFree, counts);
         int minCov = cover.cardinality() + 1;
         int minCovId = -1;
-        for (int i = 0; i < variables.length; i++) {
-            if (variables[i].isInstantiated()) continue;
-            int coverIntCardinality = cover.andCount(i);
-            if (coverIntCardinality < minCov) {
-                minCov = coverIntCardinality;
-                minCovId = i;
+        for (int k = 0; k < nFree; k++) {
+            // Ties are broken by the index of the items
+            if (counts[k] < minCov || counts[k] == minCov && freeItems[k] < minCovId) {
+                minCov = counts[k];
+                minCovId = freeItems[k];
             }
         }
         return minCovId > -1 ? variables[minCovId] : null;
     }
+
+    private int removeItem(int i, int nFree, int idx) {
+        int lastFree = nFree - 1;
+        freeItems[i] = freeItems[lastFree];
+        freeItems[lastFree] = idx;
+        return lastFree;
+    }
 }
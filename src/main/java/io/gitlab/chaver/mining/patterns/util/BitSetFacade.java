@@ -11,6 +11,16 @@ package io.gitlab.chaver.mining.patterns.util;
 
 import java.util.BitSet;
 
+/**
+ * Cover of the current pattern, the implementations are created by {@link BitSetFactory} w.r.t. their type :
+ * - sparse : {@link RSparseBitSetFacade}
+ * - compressed : {@link StorageBitSetFacade} (the covers of the items are read from the storage of the database)
+ * - trailed : {@link TrailedSparseBitSetFacade}
+ * - dense : {@link TrailedSparseBitSetFacade} with the dense mode, which only exists in {@link TrailedSparseBitSet}
+ *   (the loops over the contiguous words of a dense cover are not implemented by the other types)
+ * - hierarchical : {@link HierarchicalBitSetFacade}
+ * - auto : type selected from the database by {@link BitSetSelector}
+ */
 public interface BitSetFacade {
 
     boolean isEmpty();
@@ -23,4 +33,45 @@ public interface BitSetFacade {
     boolean isSubsetOf(int i);
     boolean maskIsSubsetOf(int i);
     BitSet getWords();
+
+    /**
+     * Copy the non-zero words of the bitset (no allocation)
+     * @param words words[k] is set to the k-th non-zero word
+     * @param offsets offsets[k] is set to the index of the k-th non-zero word
+     * @return number of non-zero words
+     */
+    int copyLiveWords(long[] words, int[] offsets);
+
+    /**
+     * Check if andCount(i) >= threshold, the words of the bitset are scanned until the outcome is decided
+     * @param i index of the item
+     * @param threshold threshold
+     * @return true if andCount(i) >= threshold
+     */
+    default boolean andCountAtLeast(int i, int threshold) {
+        return andCount(i) >= threshold;
+    }
+
+    /**
+     * Compute andCount for several items in a single pass over the words of the bitset
+     * @param items array of items
+     * @param from index of the first item in items
+     * @param to index after the last item in items
+     * @param counts counts[k] is set to andCount(items[k]) for each k in [from, to[
+     */
+    default void andCount(int[] items, int from, int to, int[] counts) {
+        for (int k = from; k < to; k++) {
+            counts[k] = andCount(items[k]);
+        }
+    }
+
+    /**
+     * Same as {@link #andCount(int[], int, int, int[])} but the count of an item stops as soon as it reaches threshold
+     * @param counts counts[k] is set to min(andCount(items[k]), threshold) for each k in [from, to[
+     */
+    default void andCountUpTo(int[] items, int from, int to, int threshold, int[] counts) {
+        for (int k = from; k < to; k++) {
+            counts[k] = Math.min(andCount(items[k]), threshold);
+        }
+    }
 }
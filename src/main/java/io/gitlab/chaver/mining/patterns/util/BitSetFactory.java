@@ -15,16 +15,48 @@ import org.chocosolver.solver.Model;
 public class BitSetFactory {
 
     public static BitSetFacade getBitSet(String type, TransactionalDatabase database, Model model) {
+        if (type.equals(BitSetSelector.TYPE)) {
+            return getBitSet(BitSetSelector.select(database), database, model);
+        }
         if (type.equals(RSparseBitSetFacade.TYPE)) {
-            return new RSparseBitSetFacade(database, model, database.getNbTransactions());
+            return new RSparseBitSetFacade(database, model, database.getNbRows());
+        }
+        if (type.equals(StorageBitSetFacade.TYPE)) {
+            return new StorageBitSetFacade(database, model, database.getNbRows());
+        }
+        if (type.equals(TrailedSparseBitSetFacade.TYPE)) {
+            return new TrailedSparseBitSetFacade(database, model, database.getNbRows());
+        }
+        if (type.equals(TrailedSparseBitSetFacade.DENSE_TYPE)) {
+            return new TrailedSparseBitSetFacade(database, model, database.getNbRows(),
+                    TrailedSparseBitSet.DEFAULT_DENSE_RATIO);
+        }
+        if (type.equals(HierarchicalBitSetFacade.TYPE)) {
+            return new HierarchicalBitSetFacade(database, model, database.getNbRows());
         }
         throw new RuntimeException("Incorrect BitSet type : " + type);
     }
 
     public static BitSetFacade getBitSet1(String type, TransactionalDatabase database, Model model) {
+        if (type.equals(BitSetSelector.TYPE)) {
+            return getBitSet1(BitSetSelector.select1(database), database, model);
+        }
         if (type.equals(RSparseBitSetFacade.TYPE)) {
             return new RSparseBitSetFacade(database, model, database.getDatasetAsLongArray()[0]);
         }
+        if (type.equals(StorageBitSetFacade.TYPE)) {
+            return new StorageBitSetFacade(database, model, database.getVerticalStorage().toBitSet(0).toLongArray());
+        }
+        if (type.equals(TrailedSparseBitSetFacade.TYPE)) {
+            return new TrailedSparseBitSetFacade(database, model, database.getDatasetAsLongArray()[0]);
+        }
+        if (type.equals(TrailedSparseBitSetFacade.DENSE_TYPE)) {
+            return new TrailedSparseBitSetFacade(database, model, database.getDatasetAsLongArray()[0],
+                    TrailedSparseBitSet.DEFAULT_DENSE_RATIO);
+        }
+        if (type.equals(HierarchicalBitSetFacade.TYPE)) {
+            return new HierarchicalBitSetFacade(database, model, database.getDatasetAsLongArray()[0]);
+        }
         throw new RuntimeException("Incorrect BitSet type : " + type);
     }
 }
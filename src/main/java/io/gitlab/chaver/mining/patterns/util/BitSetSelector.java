@@ -0,0 +1,103 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Select the type of a bitset (see {@link BitSetFactory}) from the characteristics of the database :
+ * - if the database is backed by a storage (compressed or off-heap), the covers are read from the storage
+ * - if the covers have only a few words, the reversible sparse bitset is used (the other bitsets have no benefit)
+ * - if the covers are dense, the trailed bitset with the dense mode is used (most of the words stay non-zero, so
+ *   the contiguous loops are faster than the index)
+ * - if the covers are sparse and have a lot of words, the hierarchical bitset is used (it skips the empty blocks)
+ * - otherwise, the reversible sparse bitset is used
+ * The expected density of the covers is the density of the database (i.e. the mean relative support of the items).
+ * The trailed bitset is only selected with the dense mode : on sparse covers, it loops over the same index as the
+ * reversible sparse bitset, so it has no benefit.
+ * The type depends only on the database and on the kind of cover (cover of the itemset or cover in the first class),
+ * so all the constraints posted on a database get the same type for the same kind of cover : the selection is
+ * computed and logged (at level FINE) once per database and kind of cover, the covers created later (for instance
+ * the sub-covers created during the search) reuse it.
+ */
+public class BitSetSelector {
+
+    private static final Logger LOGGER = Logger.getLogger(BitSetSelector.class.getName());
+
+    /** Type of bitset which is selected by this class */
+    public final static String TYPE = "auto";
+
+    /** Max number of words of a cover such that the reversible sparse bitset is always used */
+    public static final int SMALL_NB_WORDS = 4;
+    /** Min density of the covers such that the dense mode is used */
+    public static final double DENSE_DENSITY = 0.1;
+    /** Min number of words of a cover such that the hierarchical bitset is used (64 blocks of 64 words) */
+    public static final int HIERARCHICAL_NB_WORDS = 1 << 12;
+
+    /** Selected types of each database : index 0 for the cover, index 1 for the class cover */
+    private static final Map<TransactionalDatabase, String[]> SELECTIONS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Select the type of the bitset which represents the cover of the current itemset
+     * @param database database
+     * @return type of the bitset
+     */
+    public static String select(TransactionalDatabase database) {
+        String[] types = selections(database);
+        if (types[0] == null) {
+            types[0] = select(database, database.getDensity(), "cover");
+        }
+        return types[0];
+    }
+
+    /**
+     * Select the type of the bitset which represents the cover of the current itemset in the first class (the
+     * cover is initialized with the cover of the first item)
+     * @param database database
+     * @return type of the bitset
+     */
+    public static String select1(TransactionalDatabase database) {
+        String[] types = selections(database);
+        if (types[1] == null) {
+            double classDensity = (double) database.getClassCount()[0] / database.getNbTransactions();
+            types[1] = select(database, Math.min(database.getDensity(), classDensity), "class cover");
+        }
+        return types[1];
+    }
+
+    private static String[] selections(TransactionalDatabase database) {
+        return SELECTIONS.computeIfAbsent(database, d -> new String[2]);
+    }
+
+    private static String select(TransactionalDatabase database, double density, String name) {
+        int nbWords = (database.getNbRows() + 63) >>> 6;
+        String type;
+        if (database.isBackedByStorage()) {
+            type = StorageBitSetFacade.TYPE;
+        } else if (nbWords <= SMALL_NB_WORDS) {
+            type = RSparseBitSetFacade.TYPE;
+        } else if (density >= DENSE_DENSITY) {
+            type = TrailedSparseBitSetFacade.DENSE_TYPE;
+        } else if (nbWords >= HIERARCHICAL_NB_WORDS) {
+            type = HierarchicalBitSetFacade.TYPE;
+        } else {
+            type = RSparseBitSetFacade.TYPE;
+        }
+        LOGGER.fine(() -> String.format("BitSet of the %s : %s (%d rows, %d words, density %.4f)", name, type,
+                database.getNbRows(), nbWords, density));
+        return type;
+    }
+}
@@ -11,5 +11,8 @@ package io.gitlab.chaver.mining.patterns.util;
 
 public class ConstraintSettings {
 
-    public static String BITSET_TYPE = RSparseBitSetFacade.TYPE;
+    /** Type of the bitsets of the covers (see {@link BitSetFactory}), selected for each database by default */
+    public static String BITSET_TYPE = BitSetSelector.TYPE;
+    /** Number of free items examined by the pair-based lookahead of CoverSize (0 to disable it) */
+    public static int COVER_SIZE_LOOKAHEAD = 0;
 }
@@ -0,0 +1,268 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import org.chocosolver.solver.Model;
+
+import java.util.Arrays;
+
+/**
+ * Reversible two-level bitset for covers with a lot of words : each block of 64 words has a summary word (the bit j of
+ * the summary of the block b is set if the word 64 * b + j is non-zero) and a cached cardinality. The operations only
+ * visit the non-zero words of the non-empty blocks, and the cardinality of the bitset is maintained incrementally.
+ * The words are saved in the trail of {@link TrailedBitSet}, and the bitset has a second trail for the blocks : the
+ * first time a block is modified in a world, its old summary and cardinality are saved, and a backtrack restores only
+ * the blocks modified in the world.
+ */
+public class HierarchicalBitSet extends TrailedBitSet {
+
+    /** summaries[b] : bit j is set if words[64 * b + j] != 0 */
+    private long[] summaries;
+    /** blockCardinalities[b] : cardinality of the words of the block b */
+    private int[] blockCardinalities;
+    /** Offsets of the non-zero words, used to copy the bitset in the mask and the snapshot */
+    private int[] liveOffsets;
+    /** Stamp of the frame where each block has been saved last */
+    private int[] blockStamps;
+
+    // Trail of the blocks : index, old summary, old cardinality and old stamp
+    private int[] savedBlocks = new int[16];
+    private long[] savedSummaries = new long[16];
+    private int[] savedBlockCardinalities = new int[16];
+    private int[] savedBlockStamps = new int[16];
+    private int blockTrailSize;
+
+    /** frameBlockStarts[f] : size of the trail of the blocks when the frame f has been opened */
+    private int[] frameBlockStarts = new int[16];
+
+    /**
+     * Instantiate a HierarchicalBitSet with nbits set to 1, its cardinality is the sum of the weights of the bits set
+     * to 1
+     * @param model model whose environment is used to backtrack
+     * @param nbits fixed number of bits to set to 1
+     * @param weights weight of each bit (null if each bit has a weight of 1)
+     */
+    public HierarchicalBitSet(Model model, int nbits, int[] weights) {
+        super(model, fullWords(nbits), weights);
+        initBlocks();
+    }
+
+    /**
+     * Instantiate a HierarchicalBitSet with words, its cardinality is the sum of the weights of the bits set to 1
+     * @param model model whose environment is used to backtrack
+     * @param words words to create the bitset
+     * @param weights weight of each bit (null if each bit has a weight of 1)
+     */
+    public HierarchicalBitSet(Model model, long[] words, int[] weights) {
+        super(model, words.clone(), weights);
+        initBlocks();
+    }
+
+    private void initBlocks() {
+        int nbBlocks = (words.length + 63) >>> 6;
+        summaries = new long[nbBlocks];
+        blockCardinalities = new int[nbBlocks];
+        for (int offset = 0; offset < words.length; offset++) {
+            if (words[offset] != 0) {
+                summaries[offset >>> 6] |= 1L << offset;
+                blockCardinalities[offset >>> 6] += SparseBitSet.count(weights, offset, words[offset]);
+            }
+        }
+        blockStamps = new int[nbBlocks];
+        liveOffsets = new int[words.length];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Bitwise AND between words and m, the empty blocks are skipped
+     * @param m array to intersect with
+     */
+    @Override
+    public void and(long[] m) {
+        boolean modified = false;
+        for (int b = 0; b < summaries.length; b++) {
+            long summary = summaries[b];
+            long newSummary = summary;
+            int removed = 0;
+            while (summary != 0) {
+                int offset = (b << 6) + Long.numberOfTrailingZeros(summary);
+                summary &= summary - 1;
+                long w = words[offset] & getValue(m, offset);
+                if (w != words[offset]) {
+                    if (!modified) {
+                        openFrame();
+                        modified = true;
+                    }
+                    saveWord(offset);
+                    removed += SparseBitSet.count(weights, offset, words[offset] & ~w);
+                    words[offset] = w;
+                    if (w == 0) {
+                        newSummary &= ~(1L << offset);
+                    }
+                }
+            }
+            if (removed > 0) {
+                saveBlock(b);
+                summaries[b] = newSummary;
+                blockCardinalities[b] -= removed;
+                cardinality -= removed;
+            }
+        }
+    }
+
+    /**
+     * Bitwise AND between words and m, count the number of bits set to 1 in the result (words is not modified)
+     * @param m array to intersect with
+     */
+    @Override
+    public int andCount(long[] m) {
+        int sum = 0;
+        for (int b = 0; b < summaries.length; b++) {
+            long summary = summaries[b];
+            while (summary != 0) {
+                int offset = (b << 6) + Long.numberOfTrailingZeros(summary);
+                summary &= summary - 1;
+                sum += SparseBitSet.count(weights, offset, words[offset] & getValue(m, offset));
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Check if andCount(m) >= threshold : the scan stops as soon as the count reaches threshold, or as soon as the
+     * count plus the cardinality of the remaining blocks is less than threshold
+     * @param m array to intersect with
+     * @param threshold threshold
+     * @return true if andCount(m) >= threshold
+     */
+    @Override
+    public boolean andCountAtLeast(long[] m, int threshold) {
+        int sum = 0;
+        int remaining = cardinality;
+        for (int b = 0; b < summaries.length; b++) {
+            if (sum + remaining < threshold) {
+                return false;
+            }
+            long summary = summaries[b];
+            while (summary != 0) {
+                int offset = (b << 6) + Long.numberOfTrailingZeros(summary);
+                summary &= summary - 1;
+                sum += SparseBitSet.count(weights, offset, words[offset] & getValue(m, offset));
+            }
+            if (sum >= threshold) {
+                return true;
+            }
+            remaining -= blockCardinalities[b];
+        }
+        return sum >= threshold;
+    }
+
+    /**
+     * Check if words is a subset of m (ex : 100 is a subset of 110), the empty blocks are skipped
+     * @param m superset
+     * @return true if words is a subset of m
+     */
+    @Override
+    public boolean isSubsetOf(long[] m) {
+        for (int b = 0; b < summaries.length; b++) {
+            long summary = summaries[b];
+            while (summary != 0) {
+                int offset = (b << 6) + Long.numberOfTrailingZeros(summary);
+                summary &= summary - 1;
+                if ((~getValue(m, offset) & words[offset]) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void copyTo(SparseBitSet bitSet) {
+        int nbLive = computeLiveOffsets(liveOffsets);
+        bitSet.copy(words, liveOffsets, nbLive - 1);
+    }
+
+    @Override
+    public int copyLiveWords(long[] dest, int[] offsets) {
+        int nbLive = computeLiveOffsets(offsets);
+        for (int k = 0; k < nbLive; k++) {
+            dest[k] = words[offsets[k]];
+        }
+        return nbLive;
+    }
+
+    /**
+     * @param offsets offsets[k] is set to the index of the k-th non-zero word (in increasing order)
+     * @return number of non-zero words
+     */
+    private int computeLiveOffsets(int[] offsets) {
+        int nbLive = 0;
+        for (int b = 0; b < summaries.length; b++) {
+            long summary = summaries[b];
+            while (summary != 0) {
+                offsets[nbLive++] = (b << 6) + Long.numberOfTrailingZeros(summary);
+                summary &= summary - 1;
+            }
+        }
+        return nbLive;
+    }
+
+    @Override
+    protected void saveFrame(int frame) {
+        frameBlockStarts[frame] = blockTrailSize;
+    }
+
+    /**
+     * Restore the blocks saved in a frame
+     */
+    @Override
+    protected void restoreFrame(int frame) {
+        int blockStart = frameBlockStarts[frame];
+        for (int k = blockTrailSize - 1; k >= blockStart; k--) {
+            summaries[savedBlocks[k]] = savedSummaries[k];
+            blockCardinalities[savedBlocks[k]] = savedBlockCardinalities[k];
+            blockStamps[savedBlocks[k]] = savedBlockStamps[k];
+        }
+        blockTrailSize = blockStart;
+    }
+
+    @Override
+    protected void growFrames(int capacity) {
+        frameBlockStarts = Arrays.copyOf(frameBlockStarts, capacity);
+    }
+
+    /**
+     * Save the summary and the cardinality of the block b if they haven't been saved in the current frame
+     */
+    private void saveBlock(int b) {
+        int stamp = getStamp();
+        if (blockStamps[b] == stamp) {
+            return;
+        }
+        if (blockTrailSize == savedBlocks.length) {
+            int capacity = blockTrailSize * 2;
+            savedBlocks = Arrays.copyOf(savedBlocks, capacity);
+            savedSummaries = Arrays.copyOf(savedSummaries, capacity);
+            savedBlockCardinalities = Arrays.copyOf(savedBlockCardinalities, capacity);
+            savedBlockStamps = Arrays.copyOf(savedBlockStamps, capacity);
+        }
+        savedBlocks[blockTrailSize] = b;
+        savedSummaries[blockTrailSize] = summaries[b];
+        savedBlockCardinalities[blockTrailSize] = blockCardinalities[b];
+        savedBlockStamps[blockTrailSize] = blockStamps[b];
+        blockTrailSize++;
+        blockStamps[b] = stamp;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
+import org.chocosolver.solver.Model;
+
+/**
+ * Facade of a {@link HierarchicalBitSet} : the empty blocks of 64 words are skipped and the cardinality is cached
+ */
+public class HierarchicalBitSetFacade extends TrailedBitSetFacade<HierarchicalBitSet> {
+
+    public final static String TYPE = "hierarchical";
+
+    public HierarchicalBitSetFacade(TransactionalDatabase database, Model model, int nbits) {
+        super(database, new HierarchicalBitSet(model, nbits, database.getWeights()));
+    }
+
+    public HierarchicalBitSetFacade(TransactionalDatabase database, Model model, long[] words) {
+        super(database, new HierarchicalBitSet(model, words, database.getWeights()));
+    }
+}
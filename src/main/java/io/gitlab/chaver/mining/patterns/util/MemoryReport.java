@@ -0,0 +1,62 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
+import lombok.Getter;
+
+/**
+ * Report the memory used to build a model : the dataset shared by the constraints is counted once, and the
+ * memory of the model (reversible bitsets, variables, propagators, ...) is the difference of used heap before and
+ * after building it
+ */
+public class MemoryReport {
+
+    private final TransactionalDatabase database;
+    private long heapBefore;
+    private @Getter long modelSizeInBytes;
+
+    public MemoryReport(TransactionalDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Must be called before building the model : the shared dataset is built so that it isn't counted in the
+     * memory of the model (the covers of a database backed by a storage are read from the storage)
+     */
+    public void start() {
+        if (!database.isBackedByStorage()) {
+            database.getDatasetAsLongArray();
+        }
+        heapBefore = usedHeap();
+    }
+
+    /**
+     * Must be called after building the model
+     */
+    public void stop() {
+        modelSizeInBytes = Math.max(0, usedHeap() - heapBefore);
+    }
+
+    public long getDatasetSizeInBytes() {
+        return database.getDatasetSizeInBytes();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Override
+    public String toString() {
+        return "\tShared dataset : " + getDatasetSizeInBytes() + " bytes\n\tModel : " + modelSizeInBytes + " bytes";
+    }
+}
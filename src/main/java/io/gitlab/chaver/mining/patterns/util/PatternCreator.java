@@ -16,6 +16,7 @@ import lombok.AllArgsConstructor;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
@@ -34,14 +35,22 @@ public class PatternCreator implements Creator<Pattern> {
         int[] itemSave = IntStream
                 .range(0, items.length)
                 .filter(i -> items[i].isInstantiatedTo(1))
-                .map(i -> database.getItems()[i])
+                // Merged items are reported with the ids of all the original items they represent
+                .flatMap(i -> Arrays.stream(database.getItemIds(i)))
+                .sorted()
                 .toArray();
         int[] measureSave = new int[allMeasuresId.size()];
         for (int i = 0; i < allMeasuresId.size(); i++) {
             measureSave[i] = measureVars.get(allMeasuresId.get(i)).getValue();
         }
         Pattern p = new Pattern(itemSave, measureSave);
-        if (transactionGetter != null) p.setTransactions(transactionGetter.getTransactions());
+        if (transactionGetter != null) {
+            // Report the index of the transactions in the data file (the rows of the database may have been reorganized)
+            p.setTransactions(Arrays.stream(transactionGetter.getTransactions())
+                    .flatMap(r -> Arrays.stream(database.getTransactionIds(r)))
+                    .sorted()
+                    .toArray());
+        }
         return p;
     }
 }
@@ -56,16 +56,16 @@ public class PatternUtil {
      * @return the closed pattern associated to p
      */
     public static int[] findClosedPattern(Pattern p, TransactionalDatabase database) {
-        BitSet cover = new BitSet(database.getNbTransactions());
+        BitSet cover = new BitSet(database.getNbRows());
         Map<Integer, Integer> itemIndexes = database.getItemsMap();
-        cover.set(0, database.getNbTransactions());
+        cover.set(0, database.getNbRows());
         for (int i : p.getItems()) {
-            cover.and(database.getVerticalRepresentation()[itemIndexes.get(i)]);
+            cover.and(database.getCover(itemIndexes.get(i)));
         }
         Set<Integer> closure = new TreeSet<>();
         for (int i = database.getNbClass(); i < database.getNbItems(); i++) {
             BitSet temp = (BitSet) cover.clone();
-            temp.and(database.getVerticalRepresentation()[i]);
+            temp.and(database.getCover(i));
             if (temp.cardinality() == cover.cardinality()) {
                 closure.add(database.getItems()[i]);
             }
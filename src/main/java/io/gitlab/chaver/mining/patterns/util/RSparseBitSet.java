@@ -9,25 +9,33 @@
  */
 package io.gitlab.chaver.mining.patterns.util;
 
+import io.gitlab.chaver.mining.patterns.io.VerticalStorage;
 import org.chocosolver.memory.IStateInt;
 import org.chocosolver.memory.IStateLong;
 import org.chocosolver.solver.Model;
 
 import java.util.BitSet;
+import java.util.function.IntToLongFunction;
 import java.util.stream.IntStream;
 
 /**
  * Reversible bitset : for more information, see the following papers :
  * Compact-Table: Efficiently Filtering Table Constraints with Reversible Sparse Bit-Sets (Demeulenaere et al.)
- *
+ * The cardinality of the bitset is maintained incrementally in a reversible int.
  */
 public class RSparseBitSet {
 
     private IStateLong[] words;
     private int[] index;
     private IStateInt limit;
+    /** Number of bits set to 1 (sum of their weights if the bitset is weighted) */
+    private IStateInt cardinality;
 
     private SparseBitSet mask;
+    /** Copy of the bitset used by the batched operations */
+    private SparseBitSet snapshot;
+    /** Weight of each bit (null if each bit has a weight of 1) */
+    private int[] weights;
 
     /**
      * Instanciate a RSparseBitSet with nbits set to 1
@@ -35,6 +43,16 @@ public class RSparseBitSet {
      * @param nbits fixed number of bits to set to 1
      */
     public RSparseBitSet(Model model, int nbits) {
+        this(model, nbits, null);
+    }
+
+    /**
+     * Instanciate a RSparseBitSet with nbits set to 1, its cardinality is the sum of the weights of the bits set to 1
+     * @param model model used to create backtracking variables
+     * @param nbits fixed number of bits to set to 1
+     * @param weights weight of each bit (null if each bit has a weight of 1)
+     */
+    public RSparseBitSet(Model model, int nbits, int[] weights) {
         BitSet b = new BitSet(nbits);
         b.set(0, nbits);
         long[] wordsToCopy = b.toLongArray();
@@ -45,7 +63,9 @@ public class RSparseBitSet {
         }
         limit = model.getEnvironment().makeInt(size - 1);
         index = IntStream.range(0, size).toArray();
-        mask = new SparseBitSet();
+        this.weights = weights;
+        mask = new SparseBitSet(weights);
+        cardinality = model.getEnvironment().makeInt(computeCardinality());
     }
 
     /**
@@ -54,6 +74,16 @@ public class RSparseBitSet {
      * @param words words to create the bitset
      */
     public RSparseBitSet(Model model, long[] words) {
+        this(model, words, null);
+    }
+
+    /**
+     * Instantiate a RSparseBitSet with words, its cardinality is the sum of the weights of the bits set to 1
+     * @param model model used to create backtracking variables
+     * @param words words to create the bitset
+     * @param weights weight of each bit (null if each bit has a weight of 1)
+     */
+    public RSparseBitSet(Model model, long[] words, int[] weights) {
         this.words = new IStateLong[words.length];
         for (int i = 0; i < words.length; i++) {
             this.words[i] = model.getEnvironment().makeLong(words[i]);
@@ -63,7 +93,9 @@ public class RSparseBitSet {
         for (int i = limit.get(); i >= 0 ; i--) {
             checkWord(index[i], i);
         }
-        mask = new SparseBitSet();
+        this.weights = weights;
+        mask = new SparseBitSet(weights);
+        cardinality = model.getEnvironment().makeInt(computeCardinality());
     }
 
     /**
@@ -75,14 +107,18 @@ public class RSparseBitSet {
     }
 
     /**
-     * Number of bits set to 1
+     * Number of bits set to 1 (maintained incrementally)
      * @return number of bits set to 1
      */
     public int cardinality() {
+        return cardinality.get();
+    }
+
+    private int computeCardinality() {
         int sum = 0;
         for (int i = 0; i <= limit.get(); i++) {
             int offset = index[i];
-            sum += Long.bitCount(words[offset].get());
+            sum += SparseBitSet.count(weights, offset, words[offset].get());
         }
         return sum;
     }
@@ -96,11 +132,36 @@ public class RSparseBitSet {
      * @param m array to intersect with
      */
     public void and(long[] m) {
+        and(offset -> getValue(m, offset));
+    }
+
+    /**
+     * Bitwise AND between words and the cover of an item, the words of the cover are read from the storage
+     * @param storage storage of the covers
+     * @param item index of the item
+     */
+    public void and(VerticalStorage storage, int item) {
+        and(offset -> storage.getWord(item, offset));
+    }
+
+    /**
+     * Bitwise AND between words and a cover
+     * @param cover word of the cover at each offset
+     */
+    private void and(IntToLongFunction cover) {
+        int removed = 0;
         for (int i = limit.get(); i >= 0; i--) {
             int offset = index[i];
-            long w = words[offset].get() & getValue(m, offset);
-            words[offset].set(w);
-            checkWord(offset, i);
+            long oldWord = words[offset].get();
+            long w = oldWord & cover.applyAsLong(offset);
+            if (w != oldWord) {
+                removed += SparseBitSet.count(weights, offset, oldWord & ~w);
+                words[offset].set(w);
+                checkWord(offset, i);
+            }
+        }
+        if (removed > 0) {
+            cardinality.add(-removed);
         }
     }
 
@@ -109,22 +170,127 @@ public class RSparseBitSet {
      * @param m array to intersect with
      */
     public int andCount(long[] m) {
+        return andCount(offset -> getValue(m, offset));
+    }
+
+    /**
+     * Bitwise AND between words and the cover of an item, count the number of bits set to 1 in the result
+     * (words is not modified)
+     * @param storage storage of the covers
+     * @param item index of the item
+     */
+    public int andCount(VerticalStorage storage, int item) {
+        return andCount(offset -> storage.getWord(item, offset));
+    }
+
+    private int andCount(IntToLongFunction cover) {
         int sum = 0;
         for (int i = limit.get(); i >= 0; i--) {
             int offset = index[i];
-            sum += Long.bitCount(words[offset].get() & getValue(m, offset));
+            sum += SparseBitSet.count(weights, offset, words[offset].get() & cover.applyAsLong(offset));
         }
         return sum;
     }
 
+    /**
+     * Check if andCount(m) >= threshold : the scan stops as soon as the count reaches threshold, or as soon as the
+     * count plus the cardinality of the remaining words (the cardinality of the bitset minus the cardinality of the
+     * scanned words) is less than threshold
+     * @param m array to intersect with
+     * @param threshold threshold
+     * @return true if andCount(m) >= threshold
+     */
+    public boolean andCountAtLeast(long[] m, int threshold) {
+        return andCountAtLeast(offset -> getValue(m, offset), threshold);
+    }
+
+    /**
+     * Same as {@link #andCountAtLeast(long[], int)}, the words of the cover are read from the storage
+     */
+    public boolean andCountAtLeast(VerticalStorage storage, int item, int threshold) {
+        return andCountAtLeast(offset -> storage.getWord(item, offset), threshold);
+    }
+
+    private boolean andCountAtLeast(IntToLongFunction cover, int threshold) {
+        int remaining = cardinality.get();
+        if (remaining < threshold) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = limit.get(); i >= 0; i--) {
+            int offset = index[i];
+            long word = words[offset].get();
+            sum += SparseBitSet.count(weights, offset, word & cover.applyAsLong(offset));
+            if (sum >= threshold) {
+                return true;
+            }
+            remaining -= SparseBitSet.count(weights, offset, word);
+            if (sum + remaining < threshold) {
+                return false;
+            }
+        }
+        return sum >= threshold;
+    }
+
+    /**
+     * Compute andCount for several items in a single pass over the words of the bitset (see
+     * {@link SparseBitSet#andCount(long[][], int[], int, int, int[])})
+     */
+    public void andCount(long[][] dataset, int[] items, int from, int to, int[] counts) {
+        snapshot().andCount(dataset, items, from, to, counts);
+    }
+
+    public void andCountUpTo(long[][] dataset, int[] items, int from, int to, int threshold, int[] counts) {
+        snapshot().andCountUpTo(dataset, items, from, to, threshold, counts);
+    }
+
+    public void andCount(VerticalStorage storage, int[] items, int from, int to, int[] counts) {
+        snapshot().andCount(storage, items, from, to, counts);
+    }
+
+    public void andCountUpTo(VerticalStorage storage, int[] items, int from, int to, int threshold, int[] counts) {
+        snapshot().andCountUpTo(storage, items, from, to, threshold, counts);
+    }
+
+    /**
+     * Copy the non-zero words in the snapshot, each word is read once from the environment
+     */
+    private SparseBitSet snapshot() {
+        if (snapshot == null) {
+            snapshot = new SparseBitSet(weights);
+        }
+        snapshot.copy(words, index, limit.get());
+        return snapshot;
+    }
+
+    /**
+     * Copy the non-zero words in the mask (no allocation once the buffers of the mask are allocated)
+     */
     public void resetMask() {
-        mask.reset(copyWords(), index.clone(), limit.get());
+        mask.copy(words, index, limit.get());
     }
 
     public void andMask(long[] m) {
         mask.and(m);
     }
 
+    public void andMask(VerticalStorage storage, int item) {
+        mask.and(storage, item);
+    }
+
+    /**
+     * Copy the non-zero words of the bitset (see {@link BitSetFacade#copyLiveWords(long[], int[])})
+     */
+    public int copyLiveWords(long[] dest, int[] offsets) {
+        int nbLive = limit.get() + 1;
+        for (int i = 0; i < nbLive; i++) {
+            int offset = index[i];
+            offsets[i] = offset;
+            dest[i] = words[offset].get();
+        }
+        return nbLive;
+    }
+
     private long[] copyWords() {
         long[] copyWords = new long[words.length];
         for (int i = 0; i < words.length; i++) {
@@ -139,9 +305,23 @@ public class RSparseBitSet {
      * @return true if words is a subset of m
      */
     public boolean isSubsetOf(long[] m) {
+        return isSubsetOf(offset -> getValue(m, offset));
+    }
+
+    /**
+     * Check if words is a subset of the cover of an item
+     * @param storage storage of the covers
+     * @param item index of the item
+     * @return true if words is a subset of the cover
+     */
+    public boolean isSubsetOf(VerticalStorage storage, int item) {
+        return isSubsetOf(offset -> storage.getWord(item, offset));
+    }
+
+    private boolean isSubsetOf(IntToLongFunction cover) {
         for (int i = 0; i <= limit.get(); i++) {
             int offset = index[i];
-            if ((~getValue(m, offset) & words[offset].get()) != 0) {
+            if ((~cover.applyAsLong(offset) & words[offset].get()) != 0) {
                 return false;
             }
         }
@@ -157,6 +337,10 @@ public class RSparseBitSet {
         return mask.isSubsetOf(m);
     }
 
+    public boolean maskIsSubsetOf(VerticalStorage storage, int item) {
+        return mask.isSubsetOf(storage, item);
+    }
+
     /**
      * Return value of specified index offset
      * @param m array of long
@@ -23,12 +23,12 @@ public class RSparseBitSetFacade implements BitSetFacade {
 
     public RSparseBitSetFacade(TransactionalDatabase database, Model model, int nbits) {
         dataset = database.getDatasetAsLongArray();
-        bitSet = new RSparseBitSet(model, nbits);
+        bitSet = new RSparseBitSet(model, nbits, database.getWeights());
     }
 
     public RSparseBitSetFacade(TransactionalDatabase database, Model model, long[] words) {
         dataset = database.getDatasetAsLongArray();
-        bitSet = new RSparseBitSet(model, words);
+        bitSet = new RSparseBitSet(model, words, database.getWeights());
     }
 
 
@@ -57,6 +57,11 @@ public class RSparseBitSetFacade implements BitSetFacade {
         return bitSet.andCount(dataset[i]);
     }
 
+    @Override
+    public boolean andCountAtLeast(int i, int threshold) {
+        return bitSet.andCountAtLeast(dataset[i], threshold);
+    }
+
     @Override
     public void andMask(int i) {
         bitSet.andMask(dataset[i]);
@@ -81,4 +86,19 @@ public class RSparseBitSetFacade implements BitSetFacade {
     public BitSet getWords() {
         return bitSet.convertToBitset();
     }
+
+    @Override
+    public int copyLiveWords(long[] words, int[] offsets) {
+        return bitSet.copyLiveWords(words, offsets);
+    }
+
+    @Override
+    public void andCount(int[] items, int from, int to, int[] counts) {
+        bitSet.andCount(dataset, items, from, to, counts);
+    }
+
+    @Override
+    public void andCountUpTo(int[] items, int from, int to, int threshold, int[] counts) {
+        bitSet.andCountUpTo(dataset, items, from, to, threshold, counts);
+    }
 }
@@ -9,7 +9,12 @@
  */
 package io.gitlab.chaver.mining.patterns.util;
 
+import io.gitlab.chaver.mining.patterns.io.VerticalStorage;
+import org.chocosolver.memory.IStateLong;
+
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.function.IntToLongFunction;
 import java.util.stream.IntStream;
 
 /**
@@ -20,9 +25,28 @@ public class SparseBitSet {
     private long[] words;
     private int[] index;
     private int limit;
+    /** Weight of each bit (null if each bit has a weight of 1) */
+    private int[] weights;
+    /** TRUE if words and index are buffers owned by this bitset, which can be overwritten by the copy methods */
+    private boolean ownBuffers;
+    /** Positions of the items whose count is less than the threshold in andCountUpTo */
+    private int[] active = new int[0];
 
     public SparseBitSet() {}
 
+    /**
+     * Instantiate an empty SparseBitSet whose cardinality is the sum of the weights of the bits set to 1
+     * @param weights weight of each bit (null if each bit has a weight of 1)
+     */
+    public SparseBitSet(int[] weights) {
+        this.weights = weights;
+    }
+
+    public SparseBitSet(int nbits, int[] weights) {
+        this(nbits);
+        this.weights = weights;
+    }
+
     public SparseBitSet(int nbits) {
         BitSet b = new BitSet(nbits);
         b.set(0, nbits);
@@ -43,10 +67,21 @@ public class SparseBitSet {
     }
 
     public void and(long[] m) {
+        and(offset -> getValue(m, offset));
+    }
+
+    public void and(VerticalStorage storage, int item) {
+        and(offset -> storage.getWord(item, offset));
+    }
+
+    /**
+     * Bitwise AND between words and a cover
+     * @param cover word of the cover at each offset
+     */
+    private void and(IntToLongFunction cover) {
         for (int i = limit; i >= 0; i--) {
             int offset = index[i];
-            long w = words[offset] & getValue(m, offset);
-            words[offset] = w;
+            words[offset] &= cover.applyAsLong(offset);
             checkWords(offset, i);
         }
     }
@@ -65,9 +100,17 @@ public class SparseBitSet {
      * @return true if words is a subset of m
      */
     public boolean isSubsetOf(long[] m) {
+        return isSubsetOf(offset -> getValue(m, offset));
+    }
+
+    public boolean isSubsetOf(VerticalStorage storage, int item) {
+        return isSubsetOf(offset -> storage.getWord(item, offset));
+    }
+
+    private boolean isSubsetOf(IntToLongFunction cover) {
         for (int i = 0; i <= limit; i++) {
             int offset = index[i];
-            if ((~getValue(m, offset) & words[offset]) != 0) {
+            if ((~cover.applyAsLong(offset) & words[offset]) != 0) {
                 return false;
             }
         }
@@ -78,7 +121,7 @@ public class SparseBitSet {
         int sum = 0;
         for (int i = 0; i <= limit; i++) {
             int offset = index[i];
-            sum += Long.bitCount(words[offset]);
+            sum += count(weights, offset, words[offset]);
         }
         return sum;
     }
@@ -91,18 +134,177 @@ public class SparseBitSet {
         this.words = mask;
         this.index = indexMask;
         this.limit = limitMask;
+        ownBuffers = false;
+    }
+
+    /**
+     * Copy a sparse bitset in this bitset : only its non-zero words (index[0..limit]) are copied, in buffers which
+     * are allocated at the first call (the other words of the buffers are never read)
+     * @param words words of the bitset
+     * @param index index of the words of the bitset
+     * @param limit index[0..limit] are the non-zero words of the bitset
+     */
+    public void copy(long[] words, int[] index, int limit) {
+        allocateBuffers(words.length);
+        for (int i = 0; i <= limit; i++) {
+            int offset = index[i];
+            this.index[i] = offset;
+            this.words[offset] = words[offset];
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Copy a reversible sparse bitset in this bitset (see {@link #copy(long[], int[], int)})
+     */
+    public void copy(IStateLong[] words, int[] index, int limit) {
+        allocateBuffers(words.length);
+        for (int i = 0; i <= limit; i++) {
+            int offset = index[i];
+            this.index[i] = offset;
+            this.words[offset] = words[offset].get();
+        }
+        this.limit = limit;
+    }
+
+    private void allocateBuffers(int nbWords) {
+        if (!ownBuffers || words.length != nbWords) {
+            words = new long[nbWords];
+            index = new int[nbWords];
+            ownBuffers = true;
+        }
     }
 
     public int andCount(long[] m) {
         int sum = 0;
         for (int i = limit; i >= 0; i--) {
             int offset = index[i];
-            sum += Long.bitCount(words[offset] & getValue(m, offset));
+            sum += count(weights, offset, words[offset] & getValue(m, offset));
+        }
+        return sum;
+    }
+
+    /**
+     * Compute the intersection counts of several items in a single pass over the words of the bitset : the items are
+     * in the inner loop, so each word of the bitset is read once
+     * @param dataset words of the cover of each item
+     * @param items array of items
+     * @param from index of the first item in items
+     * @param to index after the last item in items
+     * @param counts counts[k] is set to andCount(dataset[items[k]]) for each k in [from, to[
+     */
+    public void andCount(long[][] dataset, int[] items, int from, int to, int[] counts) {
+        Arrays.fill(counts, from, to, 0);
+        for (int i = limit; i >= 0; i--) {
+            int offset = index[i];
+            long w = words[offset];
+            for (int k = from; k < to; k++) {
+                counts[k] += count(weights, offset, w & getValue(dataset[items[k]], offset));
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #andCount(long[][], int[], int, int, int[])} but the count of an item stops as soon as it reaches
+     * threshold, and the pass stops when all the counts have reached threshold
+     * @param counts counts[k] is set to min(andCount(dataset[items[k]]), threshold) for each k in [from, to[
+     */
+    public void andCountUpTo(long[][] dataset, int[] items, int from, int to, int threshold, int[] counts) {
+        int nActive = initCounts(from, to, threshold, counts);
+        for (int i = limit; i >= 0 && nActive > 0; i--) {
+            int offset = index[i];
+            long w = words[offset];
+            for (int a = nActive - 1; a >= 0; a--) {
+                int k = active[a];
+                counts[k] += count(weights, offset, w & getValue(dataset[items[k]], offset));
+                if (counts[k] >= threshold) {
+                    counts[k] = threshold;
+                    active[a] = active[--nActive];
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #andCount(long[][], int[], int, int, int[])}, the words of the covers are read from the storage
+     */
+    public void andCount(VerticalStorage storage, int[] items, int from, int to, int[] counts) {
+        Arrays.fill(counts, from, to, 0);
+        for (int i = limit; i >= 0; i--) {
+            int offset = index[i];
+            long w = words[offset];
+            for (int k = from; k < to; k++) {
+                counts[k] += count(weights, offset, w & storage.getWord(items[k], offset));
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #andCountUpTo(long[][], int[], int, int, int, int[])}, the words of the covers are read from the
+     * storage
+     */
+    public void andCountUpTo(VerticalStorage storage, int[] items, int from, int to, int threshold, int[] counts) {
+        int nActive = initCounts(from, to, threshold, counts);
+        for (int i = limit; i >= 0 && nActive > 0; i--) {
+            int offset = index[i];
+            long w = words[offset];
+            for (int a = nActive - 1; a >= 0; a--) {
+                int k = active[a];
+                counts[k] += count(weights, offset, w & storage.getWord(items[k], offset));
+                if (counts[k] >= threshold) {
+                    counts[k] = threshold;
+                    active[a] = active[--nActive];
+                }
+            }
+        }
+    }
+
+    /**
+     * Initialize the counts of andCountUpTo
+     * @return the number of items whose count is less than threshold (their positions are in active)
+     */
+    private int initCounts(int from, int to, int threshold, int[] counts) {
+        if (threshold <= 0) {
+            Arrays.fill(counts, from, to, threshold);
+            return 0;
+        }
+        if (active.length < to - from) {
+            active = new int[to - from];
+        }
+        int nActive = 0;
+        for (int k = from; k < to; k++) {
+            counts[k] = 0;
+            active[nActive++] = k;
+        }
+        return nActive;
+    }
+
+    /**
+     * Count the bits set to 1 in a word
+     * @param weights weight of each bit (null if each bit has a weight of 1)
+     * @param offset index of the word
+     * @param word word
+     * @return the sum of the weights of the bits set to 1 in the word
+     */
+    public static int count(int[] weights, int offset, long word) {
+        if (weights == null) {
+            return Long.bitCount(word);
+        }
+        int sum = 0;
+        int first = offset << 6;
+        while (word != 0) {
+            sum += weights[first + Long.numberOfTrailingZeros(word)];
+            word &= word - 1;
         }
         return sum;
     }
 
     public BitSet toBitSet() {
-        return BitSet.valueOf(words);
+        // The words which are not in index[0..limit] may be stale values of the buffers
+        long[] liveWords = new long[words.length];
+        for (int i = 0; i <= limit; i++) {
+            liveWords[index[i]] = words[index[i]];
+        }
+        return BitSet.valueOf(liveWords);
     }
 }
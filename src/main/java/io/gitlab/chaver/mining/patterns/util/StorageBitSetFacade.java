@@ -0,0 +1,109 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
+import io.gitlab.chaver.mining.patterns.io.VerticalStorage;
+import org.chocosolver.solver.Model;
+
+import java.util.BitSet;
+
+/**
+ * Reversible sparse bitset whose operations read the covers of the items from the vertical storage of the database
+ * (see {@link TransactionalDatabase#getVerticalStorage()}), so the covers are never inflated in a long[][] (the
+ * storage can be compressed or stored outside of the heap)
+ */
+public class StorageBitSetFacade implements BitSetFacade {
+
+    private VerticalStorage storage;
+    private RSparseBitSet bitSet;
+
+    public final static String TYPE = "compressed";
+
+    public StorageBitSetFacade(TransactionalDatabase database, Model model, int nbits) {
+        storage = database.getVerticalStorage();
+        bitSet = new RSparseBitSet(model, nbits, database.getWeights());
+    }
+
+    public StorageBitSetFacade(TransactionalDatabase database, Model model, long[] words) {
+        storage = database.getVerticalStorage();
+        bitSet = new RSparseBitSet(model, words, database.getWeights());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bitSet.isEmpty();
+    }
+
+    @Override
+    public int cardinality() {
+        return bitSet.cardinality();
+    }
+
+    @Override
+    public int maskCardinality() {
+        return bitSet.maskCardinality();
+    }
+
+    @Override
+    public void and(int i) {
+        bitSet.and(storage, i);
+    }
+
+    @Override
+    public int andCount(int i) {
+        return bitSet.andCount(storage, i);
+    }
+
+    @Override
+    public boolean andCountAtLeast(int i, int threshold) {
+        return bitSet.andCountAtLeast(storage, i, threshold);
+    }
+
+    @Override
+    public void andMask(int i) {
+        bitSet.andMask(storage, i);
+    }
+
+    @Override
+    public void resetMask() {
+        bitSet.resetMask();
+    }
+
+    @Override
+    public boolean isSubsetOf(int i) {
+        return bitSet.isSubsetOf(storage, i);
+    }
+
+    @Override
+    public boolean maskIsSubsetOf(int i) {
+        return bitSet.maskIsSubsetOf(storage, i);
+    }
+
+    @Override
+    public BitSet getWords() {
+        return bitSet.convertToBitset();
+    }
+
+    @Override
+    public int copyLiveWords(long[] words, int[] offsets) {
+        return bitSet.copyLiveWords(words, offsets);
+    }
+
+    @Override
+    public void andCount(int[] items, int from, int to, int[] counts) {
+        bitSet.andCount(storage, items, from, to, counts);
+    }
+
+    @Override
+    public void andCountUpTo(int[] items, int from, int to, int threshold, int[] counts) {
+        bitSet.andCountUpTo(storage, items, from, to, threshold, counts);
+    }
+}
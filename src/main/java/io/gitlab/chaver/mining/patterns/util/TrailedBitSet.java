@@ -0,0 +1,277 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.structure.IOperation;
+import org.chocosolver.solver.Model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reversible bitset backed by a plain long[] which keeps its own trail : the first time a word is modified in a world,
+ * its old value is saved in the trail (each word has the stamp of the frame where it was saved last), and the bitset
+ * registers itself once per world in the environment, so a backtrack restores only the words modified in the world.
+ * The cardinality of the bitset is maintained incrementally and saved in the frames. The subclasses can save
+ * additional state in the frames (see {@link #saveFrame(int)} and {@link #restoreFrame(int)}).
+ */
+public abstract class TrailedBitSet implements IOperation {
+
+    private final IEnvironment environment;
+    protected final long[] words;
+    /** Weight of each bit (null if each bit has a weight of 1) */
+    protected final int[] weights;
+    /** Number of bits set to 1 (sum of their weights if the bitset is weighted) */
+    protected int cardinality;
+
+    protected final SparseBitSet mask;
+    /** Copy of the bitset used by the batched operations */
+    protected final SparseBitSet snapshot;
+
+    /** wordStamps[offset] : stamp of the frame where words[offset] has been saved last */
+    private final int[] wordStamps;
+    /** Stamp of the current frame (0 if there is no frame) */
+    private int stamp;
+    private int nextStamp = 1;
+
+    // Trail : offset, old value and old stamp of each saved word
+    private int[] savedOffsets = new int[16];
+    private long[] savedWords = new long[16];
+    private int[] savedStamps = new int[16];
+    private int trailSize;
+
+    // Frames : a frame is opened in each world where the bitset is modified
+    private int[] frameWorlds = new int[16];
+    private int[] frameStarts = new int[16];
+    private int[] frameCardinalities = new int[16];
+    private int[] frameStamps = new int[16];
+    private int nbFrames;
+
+    /**
+     * @param model model whose environment is used to backtrack
+     * @param words words of the bitset (the array is not copied)
+     * @param weights weight of each bit (null if each bit has a weight of 1)
+     */
+    protected TrailedBitSet(Model model, long[] words, int[] weights) {
+        this.environment = model.getEnvironment();
+        this.words = words;
+        this.weights = weights;
+        for (int k = 0; k < words.length; k++) {
+            cardinality += SparseBitSet.count(weights, k, words[k]);
+        }
+        wordStamps = new int[words.length];
+        mask = new SparseBitSet(weights);
+        snapshot = new SparseBitSet(weights);
+    }
+
+    /**
+     * @param nbits number of bits
+     * @return words with nbits set to 1
+     */
+    protected static long[] fullWords(int nbits) {
+        BitSet b = new BitSet(nbits);
+        b.set(0, nbits);
+        return b.toLongArray();
+    }
+
+    /**
+     * Check if all bits are equal to 0
+     * @return true if all bits are equals to 0
+     */
+    public abstract boolean isEmpty();
+
+    /**
+     * Bitwise AND between words and m
+     * @param m array to intersect with
+     */
+    public abstract void and(long[] m);
+
+    /**
+     * Bitwise AND between words and m, count the number of bits set to 1 in the result (words is not modified)
+     * @param m array to intersect with
+     */
+    public abstract int andCount(long[] m);
+
+    /**
+     * Check if andCount(m) >= threshold, the words are scanned until the outcome is decided
+     * @param m array to intersect with
+     * @param threshold threshold
+     * @return true if andCount(m) >= threshold
+     */
+    public abstract boolean andCountAtLeast(long[] m, int threshold);
+
+    /**
+     * Check if words is a subset of m (ex : 100 is a subset of 110)
+     * @param m superset
+     * @return true if words is a subset of m
+     */
+    public abstract boolean isSubsetOf(long[] m);
+
+    /**
+     * Copy the non-zero words of the bitset in a sparse bitset
+     */
+    protected abstract void copyTo(SparseBitSet bitSet);
+
+    /**
+     * Copy the non-zero words of the bitset (see {@link BitSetFacade#copyLiveWords(long[], int[])})
+     */
+    public abstract int copyLiveWords(long[] dest, int[] offsets);
+
+    /**
+     * Number of bits set to 1 (maintained incrementally)
+     * @return number of bits set to 1
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public int maskCardinality() {
+        return mask.cardinality();
+    }
+
+    /**
+     * Compute andCount for several items in a single pass over the words of the bitset (see
+     * {@link SparseBitSet#andCount(long[][], int[], int, int, int[])})
+     */
+    public void andCount(long[][] dataset, int[] items, int from, int to, int[] counts) {
+        copyTo(snapshot);
+        snapshot.andCount(dataset, items, from, to, counts);
+    }
+
+    public void andCountUpTo(long[][] dataset, int[] items, int from, int to, int threshold, int[] counts) {
+        copyTo(snapshot);
+        snapshot.andCountUpTo(dataset, items, from, to, threshold, counts);
+    }
+
+    public void resetMask() {
+        copyTo(mask);
+    }
+
+    public void andMask(long[] m) {
+        mask.and(m);
+    }
+
+    /**
+     * Check if mask is a subset of m (ex : 100 is a subset of 110)
+     * @param m superset
+     * @return true if mask is a subset of m
+     */
+    public boolean maskIsSubsetOf(long[] m) {
+        return mask.isSubsetOf(m);
+    }
+
+    /**
+     * Save the state of the subclass in a frame which has just been opened
+     * @param frame index of the frame
+     */
+    protected void saveFrame(int frame) {}
+
+    /**
+     * Restore the state of the subclass saved in a frame (the words and the cardinality are already restored)
+     * @param frame index of the frame
+     */
+    protected void restoreFrame(int frame) {}
+
+    /**
+     * Increase the capacity of the arrays where the subclass saves its state in the frames
+     * @param capacity new number of frames
+     */
+    protected void growFrames(int capacity) {}
+
+    /**
+     * @return stamp of the current frame, can be used by the subclasses to save their own state once per frame
+     */
+    protected int getStamp() {
+        return stamp;
+    }
+
+    /**
+     * Restore the words saved in the last frame (called by the environment when the world of the frame is popped)
+     */
+    @Override
+    public void undo() {
+        nbFrames--;
+        int start = frameStarts[nbFrames];
+        for (int k = trailSize - 1; k >= start; k--) {
+            words[savedOffsets[k]] = savedWords[k];
+            wordStamps[savedOffsets[k]] = savedStamps[k];
+        }
+        trailSize = start;
+        cardinality = frameCardinalities[nbFrames];
+        restoreFrame(nbFrames);
+        stamp = nbFrames > 0 ? frameStamps[nbFrames - 1] : 0;
+    }
+
+    /**
+     * Open a frame if there is no frame for the current world
+     */
+    protected void openFrame() {
+        int world = environment.getWorldIndex();
+        if (nbFrames > 0 && frameWorlds[nbFrames - 1] == world) {
+            return;
+        }
+        if (nbFrames == frameWorlds.length) {
+            int capacity = nbFrames * 2;
+            frameWorlds = Arrays.copyOf(frameWorlds, capacity);
+            frameStarts = Arrays.copyOf(frameStarts, capacity);
+            frameCardinalities = Arrays.copyOf(frameCardinalities, capacity);
+            frameStamps = Arrays.copyOf(frameStamps, capacity);
+            growFrames(capacity);
+        }
+        stamp = nextStamp++;
+        frameWorlds[nbFrames] = world;
+        frameStarts[nbFrames] = trailSize;
+        frameCardinalities[nbFrames] = cardinality;
+        frameStamps[nbFrames] = stamp;
+        saveFrame(nbFrames);
+        nbFrames++;
+        environment.save(this);
+    }
+
+    /**
+     * Save the value of words[offset] if it hasn't been saved in the current frame
+     */
+    protected void saveWord(int offset) {
+        if (wordStamps[offset] == stamp) {
+            return;
+        }
+        if (trailSize == savedOffsets.length) {
+            int capacity = trailSize * 2;
+            savedOffsets = Arrays.copyOf(savedOffsets, capacity);
+            savedWords = Arrays.copyOf(savedWords, capacity);
+            savedStamps = Arrays.copyOf(savedStamps, capacity);
+        }
+        savedOffsets[trailSize] = offset;
+        savedWords[trailSize] = words[offset];
+        savedStamps[trailSize] = wordStamps[offset];
+        trailSize++;
+        wordStamps[offset] = stamp;
+    }
+
+    /**
+     * Return value of specified index offset
+     * @param m array of long
+     * @param offset index
+     * @return m[offset] if offset < m.length, 0 otherwise
+     */
+    protected static long getValue(long[] m, int offset) {
+        return offset < m.length ? m[offset] : 0;
+    }
+
+    @Override
+    public String toString() {
+        return convertToBitset().toString();
+    }
+
+    public BitSet convertToBitset() {
+        return BitSet.valueOf(words);
+    }
+}
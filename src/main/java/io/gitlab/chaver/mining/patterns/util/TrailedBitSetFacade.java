@@ -0,0 +1,100 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
+
+import java.util.BitSet;
+
+/**
+ * Facade of a {@link TrailedBitSet} whose operations read the covers of the items from the dataset of the database
+ * (see {@link TransactionalDatabase#getDatasetAsLongArray()})
+ * @param <B> type of the bitset
+ */
+public abstract class TrailedBitSetFacade<B extends TrailedBitSet> implements BitSetFacade {
+
+    protected final long[][] dataset;
+    protected final B bitSet;
+
+    protected TrailedBitSetFacade(TransactionalDatabase database, B bitSet) {
+        this.dataset = database.getDatasetAsLongArray();
+        this.bitSet = bitSet;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bitSet.isEmpty();
+    }
+
+    @Override
+    public int cardinality() {
+        return bitSet.cardinality();
+    }
+
+    @Override
+    public int maskCardinality() {
+        return bitSet.maskCardinality();
+    }
+
+    @Override
+    public void and(int i) {
+        bitSet.and(dataset[i]);
+    }
+
+    @Override
+    public int andCount(int i) {
+        return bitSet.andCount(dataset[i]);
+    }
+
+    @Override
+    public boolean andCountAtLeast(int i, int threshold) {
+        return bitSet.andCountAtLeast(dataset[i], threshold);
+    }
+
+    @Override
+    public void andMask(int i) {
+        bitSet.andMask(dataset[i]);
+    }
+
+    @Override
+    public void resetMask() {
+        bitSet.resetMask();
+    }
+
+    @Override
+    public boolean isSubsetOf(int i) {
+        return bitSet.isSubsetOf(dataset[i]);
+    }
+
+    @Override
+    public boolean maskIsSubsetOf(int i) {
+        return bitSet.maskIsSubsetOf(dataset[i]);
+    }
+
+    @Override
+    public BitSet getWords() {
+        return bitSet.convertToBitset();
+    }
+
+    @Override
+    public int copyLiveWords(long[] words, int[] offsets) {
+        return bitSet.copyLiveWords(words, offsets);
+    }
+
+    @Override
+    public void andCount(int[] items, int from, int to, int[] counts) {
+        bitSet.andCount(dataset, items, from, to, counts);
+    }
+
+    @Override
+    public void andCountUpTo(int[] items, int from, int to, int threshold, int[] counts) {
+        bitSet.andCountUpTo(dataset, items, from, to, threshold, counts);
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import org.chocosolver.solver.Model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Reversible sparse bitset backed by a plain long[] (same operations as {@link RSparseBitSet}) : instead of one
+ * reversible long per word, the bitset keeps its own trail (see {@link TrailedBitSet}), the limit of the index is
+ * saved in the frames.
+ * The words which are not in index[0..limit] are equal to 0, so when most of the words are non-zero (dense mode, see
+ * {@link #setDenseRatio(double)}), and, andCount, andCountAtLeast and isSubsetOf loop over the contiguous words instead
+ * of going through the index, which avoids the indirection and lets the JIT unroll the loops (the position of each
+ * word in the index is kept to remove the words which become 0).
+ */
+public class TrailedSparseBitSet extends TrailedBitSet {
+
+    /** Default min ratio of non-zero words of the dense mode */
+    public static final double DEFAULT_DENSE_RATIO = 0.5;
+
+    private int[] index;
+    /** positions[offset] : position of the word offset in index */
+    private int[] positions;
+    private int limit;
+    /** The bitset is in dense mode if limit >= denseLimit */
+    private int denseLimit = Integer.MAX_VALUE;
+    /** frameLimits[f] : limit when the frame f has been opened */
+    private int[] frameLimits = new int[16];
+
+    /**
+     * Instantiate a TrailedSparseBitSet with nbits set to 1, its cardinality is the sum of the weights of the bits
+     * set to 1
+     * @param model model whose environment is used to backtrack
+     * @param nbits fixed number of bits to set to 1
+     * @param weights weight of each bit (null if each bit has a weight of 1)
+     */
+    public TrailedSparseBitSet(Model model, int nbits, int[] weights) {
+        super(model, fullWords(nbits), weights);
+        initIndex();
+    }
+
+    /**
+     * Instantiate a TrailedSparseBitSet with words, its cardinality is the sum of the weights of the bits set to 1
+     * @param model model whose environment is used to backtrack
+     * @param words words to create the bitset
+     * @param weights weight of each bit (null if each bit has a weight of 1)
+     */
+    public TrailedSparseBitSet(Model model, long[] words, int[] weights) {
+        super(model, words.clone(), weights);
+        initIndex();
+    }
+
+    private void initIndex() {
+        index = IntStream.range(0, words.length).toArray();
+        positions = index.clone();
+        limit = words.length - 1;
+        for (int i = limit; i >= 0; i--) {
+            if (words[index[i]] == 0) {
+                removeWord(index[i], i);
+            }
+        }
+    }
+
+    /**
+     * Set the min ratio of non-zero words such that the operations loop over the contiguous words
+     * @param denseRatio ratio between 0 and 1 (a ratio greater than 1 disables the dense mode)
+     */
+    public void setDenseRatio(double denseRatio) {
+        denseLimit = denseRatio > 1 ? Integer.MAX_VALUE : (int) Math.ceil(denseRatio * words.length) - 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return limit == -1;
+    }
+
+    @Override
+    public void and(long[] m) {
+        if (limit >= denseLimit && m.length >= words.length) {
+            andDense(m);
+            return;
+        }
+        boolean modified = false;
+        for (int i = limit; i >= 0; i--) {
+            int offset = index[i];
+            long w = words[offset] & getValue(m, offset);
+            if (w != words[offset]) {
+                if (!modified) {
+                    openFrame();
+                    modified = true;
+                }
+                saveWord(offset);
+                cardinality -= SparseBitSet.count(weights, offset, words[offset] & ~w);
+                words[offset] = w;
+                if (w == 0) {
+                    removeWord(offset, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #and(long[])} in dense mode : the words are visited in order (the words which are not in the index
+     * are equal to 0, so they are not modified)
+     */
+    private void andDense(long[] m) {
+        boolean modified = false;
+        for (int k = 0; k < words.length; k++) {
+            long word = words[k];
+            long w = word & m[k];
+            if (w != word) {
+                if (!modified) {
+                    openFrame();
+                    modified = true;
+                }
+                saveWord(k);
+                cardinality -= SparseBitSet.count(weights, k, word & ~w);
+                words[k] = w;
+                if (w == 0) {
+                    removeWord(k, positions[k]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int andCount(long[] m) {
+        int sum = 0;
+        if (limit >= denseLimit && m.length >= words.length) {
+            if (weights == null) {
+                for (int k = 0; k < words.length; k++) {
+                    sum += Long.bitCount(words[k] & m[k]);
+                }
+            } else {
+                for (int k = 0; k < words.length; k++) {
+                    sum += SparseBitSet.count(weights, k, words[k] & m[k]);
+                }
+            }
+            return sum;
+        }
+        for (int i = limit; i >= 0; i--) {
+            int offset = index[i];
+            sum += SparseBitSet.count(weights, offset, words[offset] & getValue(m, offset));
+        }
+        return sum;
+    }
+
+    /**
+     * Check if andCount(m) >= threshold : the scan stops as soon as the count reaches threshold, or as soon as the
+     * count plus the cardinality of the remaining words (the cardinality of the bitset minus the cardinality of the
+     * scanned words) is less than threshold
+     * @param m array to intersect with
+     * @param threshold threshold
+     * @return true if andCount(m) >= threshold
+     */
+    @Override
+    public boolean andCountAtLeast(long[] m, int threshold) {
+        int remaining = cardinality;
+        if (remaining < threshold) {
+            return false;
+        }
+        int sum = 0;
+        if (limit >= denseLimit && m.length >= words.length) {
+            for (int k = 0; k < words.length; k++) {
+                sum += SparseBitSet.count(weights, k, words[k] & m[k]);
+                if (sum >= threshold) {
+                    return true;
+                }
+                remaining -= SparseBitSet.count(weights, k, words[k]);
+                if (sum + remaining < threshold) {
+                    return false;
+                }
+            }
+            return sum >= threshold;
+        }
+        for (int i = limit; i >= 0; i--) {
+            int offset = index[i];
+            long word = words[offset];
+            sum += SparseBitSet.count(weights, offset, word & getValue(m, offset));
+            if (sum >= threshold) {
+                return true;
+            }
+            remaining -= SparseBitSet.count(weights, offset, word);
+            if (sum + remaining < threshold) {
+                return false;
+            }
+        }
+        return sum >= threshold;
+    }
+
+    @Override
+    public boolean isSubsetOf(long[] m) {
+        if (limit >= denseLimit && m.length >= words.length) {
+            for (int k = 0; k < words.length; k++) {
+                if ((~m[k] & words[k]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i <= limit; i++) {
+            int offset = index[i];
+            if ((~getValue(m, offset) & words[offset]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void copyTo(SparseBitSet bitSet) {
+        bitSet.copy(words, index, limit);
+    }
+
+    @Override
+    public int copyLiveWords(long[] dest, int[] offsets) {
+        int nbLive = limit + 1;
+        for (int i = 0; i < nbLive; i++) {
+            int offset = index[i];
+            offsets[i] = offset;
+            dest[i] = words[offset];
+        }
+        return nbLive;
+    }
+
+    @Override
+    protected void saveFrame(int frame) {
+        frameLimits[frame] = limit;
+    }
+
+    @Override
+    protected void restoreFrame(int frame) {
+        limit = frameLimits[frame];
+    }
+
+    @Override
+    protected void growFrames(int capacity) {
+        frameLimits = Arrays.copyOf(frameLimits, capacity);
+    }
+
+    /**
+     * words[offset] is equal to 0 : swap index[i] and index[limit] and decrease limit of 1
+     * @param offset index[i]
+     * @param i
+     */
+    private void removeWord(int offset, int i) {
+        int last = index[limit];
+        index[i] = last;
+        positions[last] = i;
+        index[limit] = offset;
+        positions[offset] = limit;
+        limit--;
+    }
+}
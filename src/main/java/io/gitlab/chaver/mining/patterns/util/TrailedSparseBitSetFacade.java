@@ -0,0 +1,48 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
+import org.chocosolver.solver.Model;
+
+/**
+ * Facade of a {@link TrailedSparseBitSet} : the words of the bitset are saved in its own trail instead of one
+ * reversible long per word
+ */
+public class TrailedSparseBitSetFacade extends TrailedBitSetFacade<TrailedSparseBitSet> {
+
+    public final static String TYPE = "trailed";
+    /** Same bitset with the dense mode enabled (see {@link TrailedSparseBitSet#setDenseRatio(double)}) */
+    public final static String DENSE_TYPE = "dense";
+
+    public TrailedSparseBitSetFacade(TransactionalDatabase database, Model model, int nbits) {
+        super(database, new TrailedSparseBitSet(model, nbits, database.getWeights()));
+    }
+
+    public TrailedSparseBitSetFacade(TransactionalDatabase database, Model model, long[] words) {
+        super(database, new TrailedSparseBitSet(model, words, database.getWeights()));
+    }
+
+    /**
+     * @param denseRatio min ratio of non-zero words of the dense mode
+     */
+    public TrailedSparseBitSetFacade(TransactionalDatabase database, Model model, int nbits, double denseRatio) {
+        this(database, model, nbits);
+        bitSet.setDenseRatio(denseRatio);
+    }
+
+    /**
+     * @param denseRatio min ratio of non-zero words of the dense mode
+     */
+    public TrailedSparseBitSetFacade(TransactionalDatabase database, Model model, long[] words, double denseRatio) {
+        this(database, model, words);
+        bitSet.setDenseRatio(denseRatio);
+    }
+}
@@ -17,7 +17,7 @@ import io.gitlab.chaver.chocotools.problem.SetUpException;
 import io.gitlab.chaver.mining.patterns.constraints.PropCoverClosure;
 import io.gitlab.chaver.mining.patterns.constraints.PropCoverSize;
 import io.gitlab.chaver.mining.patterns.constraints.PropGenerator;
-import io.gitlab.chaver.mining.patterns.io.DatReader;
+import io.gitlab.chaver.mining.patterns.io.DataReaderFactory;
 import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
 import io.gitlab.chaver.mining.patterns.io.Pattern;
 import io.gitlab.chaver.mining.patterns.io.PatternProblemProperties;
@@ -98,7 +98,7 @@ public class AssociationRuleMining extends ChocoProblem<AssociationRule, ArMeasu
     @Override
     public void parseArgs() throws SetUpException {
         try {
-            database = new DatReader(dataPath, 0, noClasses).read();
+            database = DataReaderFactory.getReader(dataPath, 0, noClasses).read();
             if (relativeMinFreq != 0 && minFreq != 0) {
                 throw new SetUpException("--fmin and --rfmin are mutually exclusive (specify only one)");
             }
@@ -11,6 +11,7 @@ package io.gitlab.chaver.mining.patterns.constraints;
 
 import io.gitlab.chaver.mining.patterns.constraints.factory.ConstraintFactory;
 import io.gitlab.chaver.mining.patterns.io.DatReader;
+import io.gitlab.chaver.mining.patterns.io.DatabaseReorganizer;
 import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solver;
@@ -30,7 +31,10 @@ import static org.junit.jupiter.api.Assertions.*;
 class OverlapTest {
 
     Overlap createOverlap(String dataPath, boolean addConstraint, double jmax, int theta) throws Exception {
-        TransactionalDatabase database = new DatReader(dataPath).read();
+        return createOverlap(new DatReader(dataPath).read(), addConstraint, jmax, theta);
+    }
+
+    Overlap createOverlap(TransactionalDatabase database, boolean addConstraint, double jmax, int theta) {
         Model model = new Model("Diversity");
         IntVar freq = model.intVar("freq", theta, database.getNbTransactions());
         IntVar length = model.intVar("length", 1, database.getNbItems());
@@ -92,4 +96,22 @@ class OverlapTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void testMergedTransactions() throws Exception {
+        double jmax = 0.2;
+        int theta = 5;
+        TransactionalDatabase database = new DatReader("src/test/resources/zoo/zoo.dat").read();
+        TransactionalDatabase merged = DatabaseReorganizer.mergeDuplicateTransactions(database);
+        assertTrue(merged.getNbRows() < database.getNbRows());
+        Overlap overlap = createOverlap(database, true, jmax, theta);
+        while (overlap.getPropagator(0).getModel().getSolver().solve());
+        Overlap overlapMerged = createOverlap(merged, true, jmax, theta);
+        while (overlapMerged.getPropagator(0).getModel().getSolver().solve());
+        List<int[]> itemsets = overlap.getItemsetsHistory();
+        List<int[]> itemsetsMerged = overlapMerged.getItemsetsHistory();
+        assertEquals(itemsets.size(), itemsetsMerged.size());
+        for (int i = 0; i < itemsets.size(); i++) {
+            assertArrayEquals(itemsets.get(i), itemsetsMerged.get(i));
+        }
+    }
+}
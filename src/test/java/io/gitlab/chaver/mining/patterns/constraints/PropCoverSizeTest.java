@@ -9,25 +9,36 @@
  */
 package io.gitlab.chaver.mining.patterns.constraints;
 
+import io.gitlab.chaver.mining.patterns.io.CompressedVerticalStorage;
 import io.gitlab.chaver.mining.patterns.io.DatReader;
 import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
 import io.gitlab.chaver.mining.patterns.io.Pattern;
+import io.gitlab.chaver.mining.patterns.util.BitSetSelector;
+import io.gitlab.chaver.mining.patterns.util.ConstraintSettings;
+import io.gitlab.chaver.mining.patterns.util.HierarchicalBitSetFacade;
+import io.gitlab.chaver.mining.patterns.util.StorageBitSetFacade;
+import io.gitlab.chaver.mining.patterns.util.TrailedSparseBitSetFacade;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Cause;
 import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 import org.junit.jupiter.api.Test;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static io.gitlab.chaver.mining.patterns.util.PatternUtil.readPatternStream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -36,12 +47,20 @@ public class PropCoverSizeTest {
     private final String resourcesPath = "src/test/resources/";
 
     private void testFindFrequentPatterns(String dataPath, Set<Pattern> expectedPatterns, int freqLB) throws IOException {
+        testFindFrequentPatterns(new DatReader(dataPath, 0, true).read(), expectedPatterns, freqLB);
+    }
+
+    private void testFindFrequentPatterns(TransactionalDatabase database, Set<Pattern> expectedPatterns, int freqLB) {
+        testFindFrequentPatterns(database, expectedPatterns, freqLB, database.getNbTransactions());
+    }
+
+    private void testFindFrequentPatterns(TransactionalDatabase database, Set<Pattern> expectedPatterns, int freqLB,
+                                          int freqUB) {
         Set<Pattern> filteredExpected = expectedPatterns.stream()
-                .filter(p -> p.getMeasures()[0] >= freqLB)
+                .filter(p -> p.getMeasures()[0] >= freqLB && p.getMeasures()[0] <= freqUB)
                 .collect(Collectors.toSet());
         Model model = new Model("frequent test");
-        TransactionalDatabase database = new DatReader(dataPath, 0, true).read();
-        IntVar freq = model.intVar("freq", freqLB, database.getNbTransactions());
+        IntVar freq = model.intVar("freq", freqLB, freqUB);
         IntVar length = model.intVar("length", 1, database.getNbItems());
         BoolVar[] x = model.boolVarArray("x", database.getNbItems());
         model.sum(x, "=", length).post();
@@ -58,6 +77,29 @@ public class PropCoverSizeTest {
         }
     }
 
+    private TransactionalDatabase readPasquier() throws IOException {
+        return new DatReader(resourcesPath + "contextPasquier99/contextPasquier99.dat", 0, true).read();
+    }
+
+    /**
+     * Find the frequent patterns of contextPasquier99 (freq from 2 to 4) with a given type of bitset
+     * @param bitSetType type of bitset (see {@link ConstraintSettings#BITSET_TYPE})
+     * @param database contextPasquier99 database
+     */
+    private void testFindFrequentPatterns(String bitSetType, TransactionalDatabase database) throws IOException {
+        String resPath = resourcesPath + "contextPasquier99/frequent.txt";
+        Set<Pattern> expectedPatterns = new HashSet<>(readPatternStream(new FileInputStream(resPath)));
+        String type = ConstraintSettings.BITSET_TYPE;
+        ConstraintSettings.BITSET_TYPE = bitSetType;
+        try {
+            for (int i = 2; i <= 4; i++) {
+                testFindFrequentPatterns(database, expectedPatterns, i);
+            }
+        } finally {
+            ConstraintSettings.BITSET_TYPE = type;
+        }
+    }
+
     @Test
     public void testCoverSize() throws IOException {
         String dataPath = resourcesPath + "contextPasquier99/contextPasquier99.dat";
@@ -67,4 +109,112 @@ public class PropCoverSizeTest {
             testFindFrequentPatterns(dataPath, expectedPatterns, i);
         }
     }
+
+    @Test
+    public void testCoverSizeMaxFreq() throws IOException {
+        String dataPath = resourcesPath + "contextPasquier99/contextPasquier99.dat";
+        String resPath = resourcesPath + "contextPasquier99/frequent.txt";
+        Set<Pattern> expectedPatterns = new HashSet<>(readPatternStream(new FileInputStream(resPath)));
+        TransactionalDatabase database = new DatReader(dataPath, 0, true).read();
+        int lookahead = ConstraintSettings.COVER_SIZE_LOOKAHEAD;
+        try {
+            for (int l : new int[]{0, 2, database.getNbItems()}) {
+                ConstraintSettings.COVER_SIZE_LOOKAHEAD = l;
+                for (int i = 2; i <= 4; i++) {
+                    testFindFrequentPatterns(database, expectedPatterns, 2, i);
+                    testFindFrequentPatterns(database, expectedPatterns, i, i);
+                }
+            }
+        } finally {
+            ConstraintSettings.COVER_SIZE_LOOKAHEAD = lookahead;
+        }
+    }
+
+    @Test
+    public void testCoverSizeCompressed() throws IOException {
+        testFindFrequentPatterns(StorageBitSetFacade.TYPE, readPasquier()
+                .compress(CompressedVerticalStorage.DEFAULT_ARRAY_DENSITY, CompressedVerticalStorage.DEFAULT_RUN_DENSITY));
+    }
+
+    @Test
+    public void testCoverSizeOffHeap() throws IOException {
+        testFindFrequentPatterns(StorageBitSetFacade.TYPE, readPasquier().offHeap());
+    }
+
+    @Test
+    public void testCoverSizeTrailed() throws IOException {
+        testFindFrequentPatterns(TrailedSparseBitSetFacade.TYPE, readPasquier());
+    }
+
+    @Test
+    public void testCoverSizeDense() throws IOException {
+        testFindFrequentPatterns(TrailedSparseBitSetFacade.DENSE_TYPE, readPasquier());
+    }
+
+    @Test
+    public void testCoverSizeHierarchical() throws IOException {
+        testFindFrequentPatterns(HierarchicalBitSetFacade.TYPE, readPasquier());
+    }
+
+    @Test
+    public void testCoverSizeAuto() throws IOException {
+        testFindFrequentPatterns(BitSetSelector.TYPE, readPasquier());
+    }
+
+    /**
+     * Propagate CoverSize on a model where only a few items are free (the other ones are set to 0) and the upper
+     * bound of freq is freqUB
+     * @param lateUB if true, freqUB is applied after the initial propagation, otherwise it's in the initial domain
+     * @return the value of each item (-1 if it is free), or null if the propagation fails
+     */
+    private int[] propagateMaxFreq(TransactionalDatabase database, int[] freeItems, int freqUB, boolean lateUB) {
+        Model model = new Model("max freq test");
+        IntVar freq = model.intVar("freq", 0, lateUB ? database.getNbTransactions() : freqUB);
+        BoolVar[] x = new BoolVar[database.getNbItems()];
+        for (int i = 0; i < x.length; i++) {
+            int item = i;
+            x[i] = Arrays.stream(freeItems).anyMatch(j -> j == item) ? model.boolVar("x" + i) : model.boolVar(false);
+        }
+        model.post(new Constraint("Cover Size", new PropCoverSize(database, freq, x)));
+        try {
+            model.getSolver().propagate();
+            if (lateUB) {
+                model.getEnvironment().worldPush();
+                freq.updateUpperBound(freqUB, Cause.Null);
+                model.getSolver().propagate();
+            }
+        } catch (ContradictionException e) {
+            return null;
+        }
+        return Arrays.stream(x).mapToInt(v -> v.isInstantiated() ? v.getValue() : -1).toArray();
+    }
+
+    private void testLateMaxFreq(TransactionalDatabase database) {
+        Random random = new Random(0);
+        int nbForced = 0;
+        for (int n = 0; n < 200; n++) {
+            int[] freeItems = random.ints(0, database.getNbItems()).distinct().limit(3).toArray();
+            int freqUB = random.nextInt(database.getNbTransactions() + 1);
+            int[] expected = propagateMaxFreq(database, freeItems, freqUB, false);
+            assertArrayEquals(expected, propagateMaxFreq(database, freeItems, freqUB, true));
+            if (expected != null && Arrays.stream(expected).anyMatch(v -> v == 1)) {
+                nbForced++;
+            }
+        }
+        assertTrue(nbForced > 0);
+    }
+
+    @Test
+    public void testCoverSizeLateMaxFreq() throws IOException {
+        TransactionalDatabase database = new DatReader(resourcesPath + "zoo/zoo.dat", 0).read();
+        testLateMaxFreq(database);
+        // The words of the items are read from the storage
+        String type = ConstraintSettings.BITSET_TYPE;
+        ConstraintSettings.BITSET_TYPE = StorageBitSetFacade.TYPE;
+        try {
+            testLateMaxFreq(database.offHeap());
+        } finally {
+            ConstraintSettings.BITSET_TYPE = type;
+        }
+    }
 }
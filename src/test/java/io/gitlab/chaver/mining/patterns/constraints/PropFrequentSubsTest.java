@@ -48,7 +48,10 @@ class PropFrequentSubsTest {
     }*/
 
     Model createModel(String dataPath, boolean mfi, int s) throws Exception {
-        TransactionalDatabase database = new DatReader(dataPath, 0, true).read();
+        return createModel(new DatReader(dataPath, 0, true).read(), mfi, s);
+    }
+
+    Model createModel(TransactionalDatabase database, boolean mfi, int s) {
         Model model = new Model();
         BoolVar[] x = model.boolVarArray("x", database.getNbItems());
         int freqLB = mfi ? s : 0;
@@ -149,6 +152,14 @@ class PropFrequentSubsTest {
         assertEquals(2288, solutions.size());
     }
 
+    @Test
+    void testMII2OffHeap() throws Exception {
+        TransactionalDatabase database = new DatReader("src/test/resources/mushroom/mushroom.dat", 0, true).read();
+        Model model = createModel(database.offHeap(), false, 813);
+        List<Solution> solutions = model.getSolver().findAllSolutions();
+        assertEquals(2288, solutions.size());
+    }
+
     @Test
     void testMFI2() throws Exception {
         Model model = createModel("src/test/resources/mushroom/mushroom.dat", true, 813);
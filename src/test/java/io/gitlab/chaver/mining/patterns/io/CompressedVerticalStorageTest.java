@@ -0,0 +1,87 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompressedVerticalStorageTest {
+
+    private void testWords(BitSet[] verticalRepresentation, int nbTransactions, double arrayDensity,
+                           double runDensity) {
+        VerticalStorage storage = new CompressedVerticalStorage(verticalRepresentation, nbTransactions,
+                arrayDensity, runDensity);
+        int nbWords = (nbTransactions + 63) >>> 6;
+        for (int i = 0; i < verticalRepresentation.length; i++) {
+            long[] words = verticalRepresentation[i].toLongArray();
+            for (int k = 0; k <= nbWords; k++) {
+                assertEquals(k < words.length ? words[k] : 0, storage.getWord(i, k));
+            }
+            assertEquals(verticalRepresentation[i].cardinality(), storage.cardinality(i));
+            assertEquals(verticalRepresentation[i], storage.toBitSet(i));
+        }
+    }
+
+    @Test
+    public void testContainers() {
+        int nbTransactions = 200_000;
+        BitSet sparse = new BitSet();
+        for (int t = 0; t < nbTransactions; t += 97) {
+            sparse.set(t);
+        }
+        BitSet runs = new BitSet();
+        for (int t = 0; t < nbTransactions; t += 1000) {
+            runs.set(t + 30, t + 300);
+        }
+        BitSet dense = new BitSet();
+        for (int t = 0; t < nbTransactions; t++) {
+            if (t % 3 != 0) dense.set(t);
+        }
+        BitSet full = new BitSet();
+        full.set(0, nbTransactions);
+        BitSet[] verticalRepresentation = {sparse, runs, dense, full, new BitSet()};
+        double[][] densities = {
+                {CompressedVerticalStorage.DEFAULT_ARRAY_DENSITY, CompressedVerticalStorage.DEFAULT_RUN_DENSITY},
+                {0, 0}, {1, 0}, {0, 1}, {1, 1}
+        };
+        for (double[] d : densities) {
+            testWords(verticalRepresentation, nbTransactions, d[0], d[1]);
+        }
+    }
+
+    @Test
+    public void testCompressDatabase() throws IOException {
+        TransactionalDatabase database = new DatReader("src/test/resources/mushroom/mushroom.dat", 0).read();
+        testWords(database.getVerticalRepresentation(), database.getNbTransactions(),
+                CompressedVerticalStorage.DEFAULT_ARRAY_DENSITY, CompressedVerticalStorage.DEFAULT_RUN_DENSITY);
+        TransactionalDatabase compressed = database.compress(CompressedVerticalStorage.DEFAULT_ARRAY_DENSITY,
+                CompressedVerticalStorage.DEFAULT_RUN_DENSITY);
+        assertEquals(database.getNbTransactions(), compressed.getNbTransactions());
+        assertArrayEquals(database.computeItemFreq(), compressed.computeItemFreq());
+        assertArrayEquals(database.getClassCount(), compressed.getClassCount());
+        for (int i = 0; i < database.getNbItems(); i++) {
+            assertEquals(database.getCover(i), compressed.getCover(i));
+            // The covers read from the storage are not cached by the database
+            assertNotSame(compressed.getCover(i), compressed.getCover(i));
+        }
+        assertEquals(compressed.getVerticalStorage().getSizeInBytes(), compressed.getDatasetSizeInBytes());
+        // The covers of a compressed database are never inflated
+        assertThrows(IllegalStateException.class, compressed::getDatasetAsLongArray);
+        assertThrows(IllegalStateException.class, compressed::getVerticalRepresentation);
+        assertThrows(IllegalStateException.class, database::getVerticalStorage);
+    }
+}
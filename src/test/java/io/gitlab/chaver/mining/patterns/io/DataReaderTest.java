@@ -10,11 +10,23 @@
 package io.gitlab.chaver.mining.patterns.io;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DataReaderTest {
 
@@ -83,5 +95,177 @@ public class DataReaderTest {
         testRead(reader, 1, vRep, new int[][]{});
     }
 
+    @Test
+    public void testStreamingDatReader() throws IOException {
+        DataReader reader = new StreamingDatReader(datPath, 2);
+        testRead(reader, 2, verticalRep, values);
+    }
+
+    @Test
+    public void testStreamingDatReader2() throws IOException {
+        DataReader reader = new StreamingDatReader("src/test/resources/read/read2.dat", 0);
+        boolean[][] vRep = new boolean[][] {
+                {T, T},
+                {F, T},
+                {T, F}
+        };
+        testRead(reader, 1, vRep, new int[][]{});
+    }
+
+    @Test
+    public void testMappedDatReader() throws IOException {
+        MappedDatReader reader = new MappedDatReader(datPath, 2, false, 2);
+        // Each line of the file is in a different chunk
+        reader.setChunkSize(1);
+        testRead(reader, 2, verticalRep, values);
+    }
+
+    @Test
+    public void testMappedBinReader() throws IOException {
+        MappedBinReader reader = new MappedBinReader(binPath, 2, false, 2);
+        reader.setChunkSize(1);
+        testRead(reader, 2, verticalRep, values);
+    }
+
+    @Test
+    public void testMappedDatReaderMushroom() throws IOException {
+        String path = "src/test/resources/mushroom/mushroom.dat";
+        TransactionalDatabase expected = new DatReader(path, 0).read();
+        MappedDatReader reader = new MappedDatReader(path, 0, false, 4);
+        reader.setChunkSize(1000);
+        TransactionalDatabase d = reader.read();
+        assertArrayEquals(expected.getItems(), d.getItems());
+        assertEquals(expected.getNbTransactions(), d.getNbTransactions());
+        assertEquals(expected.getNbClass(), d.getNbClass());
+        assertArrayEquals(expected.getVerticalRepresentation(), d.getVerticalRepresentation());
+    }
+
+    @Test
+    public void testSnapshotReader(@TempDir Path tempDir) throws IOException {
+        String snapPath = tempDir.resolve("read.snap").toString();
+        SnapshotWriter.write(new DatReader(datPath, 2).read(), snapPath);
+        testRead(DataReaderFactory.getReader(snapPath, 2, false), 2, verticalRep, values);
+        testRead(DataReaderFactory.getReader(snapPath, 1, true), 0, verticalRep, new int[][]{values[0]});
+    }
+
+    @Test
+    public void testTruncatedSnapshot(@TempDir Path tempDir) throws IOException {
+        Path snapPath = tempDir.resolve("read.snap");
+        SnapshotWriter.write(new DatReader(datPath, 2).read(), snapPath.toString());
+        byte[] snapshot = Files.readAllBytes(snapPath);
+        Path truncatedPath = tempDir.resolve("truncated.snap");
+        for (int size = 0; size < snapshot.length; size++) {
+            Files.write(truncatedPath, Arrays.copyOf(snapshot, size));
+            assertThrows(IOException.class, () -> new SnapshotReader(truncatedPath.toString(), 2).read());
+        }
+    }
+
+    @Test
+    public void testSnapshotWriterReorganized(@TempDir Path tempDir) throws IOException {
+        String snapPath = tempDir.resolve("mushroom.snap").toString();
+        TransactionalDatabase mushroom = new DatReader("src/test/resources/mushroom/mushroom.dat", 0, true).read();
+        assertThrows(IOException.class, () -> SnapshotWriter.write(
+                DatabaseReorganizer.mergeDuplicateTransactions(mushroom), snapPath));
+        assertThrows(IOException.class, () -> SnapshotWriter.write(
+                DatabaseReorganizer.clusterTransactions(mushroom), snapPath));
+        DatabasePreprocessor preprocessor = new DatabasePreprocessor();
+        preprocessor.setMergeEquivalentItems(true);
+        assertThrows(IOException.class, () -> SnapshotWriter.write(preprocessor.preprocess(mushroom), snapPath));
+        preprocessor.setMergeEquivalentItems(false);
+        // Only the first item is kept, the transactions which don't contain it are removed
+        preprocessor.setExcludedItems(IntStream.range(1, mushroom.getNbItems()).toArray());
+        preprocessor.setRemoveEmptyTransactions(true);
+        assertThrows(IOException.class, () -> SnapshotWriter.write(preprocessor.preprocess(mushroom), snapPath));
+        // Permuting the items keeps the transactions
+        int[] permutation = DatabaseReorganizer.sortItemsBySupport(mushroom, DatabaseReorganizer.SUPPORT_DESC);
+        TransactionalDatabase permuted = DatabaseReorganizer.permuteItems(mushroom, permutation);
+        SnapshotWriter.write(permuted, snapPath);
+        TransactionalDatabase d = DataReaderFactory.getReader(snapPath, 0, false).read();
+        assertArrayEquals(permuted.getItems(), d.getItems());
+        assertArrayEquals(permuted.getVerticalRepresentation(), d.getVerticalRepresentation());
+    }
+
+    @Test
+    public void testSharedDataset() throws IOException {
+        TransactionalDatabase d = new DatReader("src/test/resources/mushroom/mushroom.dat", 0).read();
+        long[][] dataset = d.getDatasetAsLongArray();
+        assertSame(dataset, d.getDatasetAsLongArray());
+        int nbWords = (d.getNbTransactions() + 63) / 64;
+        for (int i = 0; i < d.getNbItems(); i++) {
+            assertEquals(nbWords, dataset[i].length);
+            assertEquals(d.getVerticalRepresentation()[i], BitSet.valueOf(dataset[i]));
+        }
+    }
+
+    @Test
+    public void testHorizontalRepresentation() throws IOException {
+        TransactionalDatabase d = new DatReader(datPath, 2).read();
+        int[][] expected = {{0, 2, 4}, {1, 4}, {1, 3}};
+        assertArrayEquals(expected, d.getHorizontalRepresentation());
+        assertSame(d.getHorizontalRepresentation(), d.getHorizontalRepresentation());
+    }
+
+    @Test
+    public void testMultiColumnValues(@TempDir Path tempDir) throws IOException {
+        Path dataPath = tempDir.resolve("read.dat");
+        Files.copy(Paths.get(datPath), dataPath);
+        Files.write(tempDir.resolve("read.vals"), Arrays.asList("0.01 0.01", "0.02\t0.02", "0.1 0.25",
+                "0.5 0.5 1", "0.9 0.75"));
+        testRead(new DatReader(dataPath.toString(), 2), 2, verticalRep, values);
+        testRead(new DatReader(dataPath.toString(), 1), 2, verticalRep, new int[][]{values[0]});
+    }
 
+    @Test
+    public void testMissingValues(@TempDir Path tempDir) throws IOException {
+        Path dataPath = tempDir.resolve("read.dat");
+        Files.copy(Paths.get(datPath), dataPath);
+        Files.write(tempDir.resolve("read.val0"), Arrays.asList("0.01", "0.02", "0.1"));
+        assertThrows(IOException.class, () -> new DatReader(dataPath.toString(), 1).read());
+        Files.write(tempDir.resolve("read.val0"), Arrays.asList("0.01", "0.02", "0.1", "x", "0.9"));
+        assertThrows(IOException.class, () -> new DatReader(dataPath.toString(), 1).read());
+    }
+
+    @Test
+    public void testMinusSign(@TempDir Path tempDir) throws IOException {
+        Path dataPath = tempDir.resolve("minus.dat");
+        for (String data : new String[]{"1 - 2\n", "1 -\n2\n", "1 --2\n", "1 2 -"}) {
+            Files.write(dataPath, data.getBytes());
+            assertThrows(IOException.class, () -> new StreamingDatReader(dataPath.toString()).read());
+            assertThrows(IOException.class, () -> new MappedDatReader(dataPath.toString(), 0).read());
+        }
+        Files.write(dataPath, "1 -2\n-2 3\n".getBytes());
+        TransactionalDatabase d = new StreamingDatReader(dataPath.toString()).read();
+        assertArrayEquals(new int[]{-2, 1, 3}, d.getItems());
+        assertEquals(2, d.getNbTransactions());
+    }
+
+    @Test
+    public void testItemOutOfRange(@TempDir Path tempDir) throws IOException {
+        Path dataPath = tempDir.resolve("range.dat");
+        for (String data : new String[]{"1 2147483648\n", "-2147483649 1\n", "1\n99999999999999999999\n"}) {
+            Files.write(dataPath, data.getBytes());
+            assertThrows(IOException.class, () -> new StreamingDatReader(dataPath.toString()).read());
+            assertThrows(IOException.class, () -> new MappedDatReader(dataPath.toString(), 0).read());
+        }
+        Files.write(dataPath, "2147483647 -2147483648\n-2147483648 0\n".getBytes());
+        TransactionalDatabase d = new StreamingDatReader(dataPath.toString()).read();
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE}, d.getItems());
+        assertEquals(2, d.getNbTransactions());
+    }
+
+    @Test
+    public void testErrorLine(@TempDir Path tempDir) throws IOException {
+        Path dataPath = tempDir.resolve("error.dat");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            lines.add(i == 876 ? "1 x 3" : "1 2 3");
+        }
+        Files.write(dataPath, lines);
+        IOException e = assertThrows(IOException.class, () -> new StreamingDatReader(dataPath.toString()).read());
+        assertTrue(e.getMessage().contains("in line 877 of"));
+        MappedDatReader reader = new MappedDatReader(dataPath.toString(), 0, false, 4);
+        reader.setChunkSize(100);
+        e = assertThrows(IOException.class, reader::read);
+        assertTrue(e.getMessage().contains("in line 877 of"));
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import io.gitlab.chaver.mining.patterns.constraints.PropCoverClosure;
+import io.gitlab.chaver.mining.patterns.constraints.PropCoverSize;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DatabasePreprocessorTest {
+
+    private BitSet cover(int... transactions) {
+        BitSet cover = new BitSet();
+        Arrays.stream(transactions).forEach(cover::set);
+        return cover;
+    }
+
+    @Test
+    public void testPreprocess() {
+        // Transactions : {1, 2, 3, 6}, {1, 2, 6}, {4, 6}, {6}, {}
+        BitSet[] verticalRepresentation = {cover(0, 1), cover(0, 1), cover(0), cover(2), cover(), cover(0, 1, 2, 3)};
+        int[][] values = {{10, 20, 30, 40, 50, 60}};
+        TransactionalDatabase database = new TransactionalDatabase(new int[]{1, 2, 3, 4, 5, 6}, values, 0,
+                verticalRepresentation, 5);
+        DatabasePreprocessor preprocessor = new DatabasePreprocessor();
+        preprocessor.setMinFreq(2);
+        preprocessor.setExcludedItems(new int[]{5});
+        preprocessor.setRemoveEmptyTransactions(true);
+        preprocessor.setMergeEquivalentItems(true);
+        TransactionalDatabase reduced = preprocessor.preprocess(database);
+        assertArrayEquals(new int[]{1}, reduced.getItems());
+        assertArrayEquals(new int[]{1, 2}, reduced.getItemIds(0));
+        assertArrayEquals(new int[][]{{10}}, reduced.getValues());
+        assertEquals(0, (int) reduced.getItemsMap().get(2));
+        assertEquals(2, reduced.getNbRows());
+        assertEquals(5, reduced.getNbTransactions());
+        assertEquals(cover(0, 1), reduced.getVerticalRepresentation()[0]);
+        assertArrayEquals(new int[]{1}, reduced.getTransactionIds(1));
+        // The items which are kept have the same frequency
+        assertArrayEquals(new int[]{2}, reduced.computeItemFreq());
+    }
+
+    @Test
+    public void testKeepClassItems() throws IOException {
+        TransactionalDatabase database = new DatReader("src/test/resources/zoo/zoo.dat", 0).read();
+        DatabasePreprocessor preprocessor = new DatabasePreprocessor();
+        preprocessor.setMinFreq(database.getNbTransactions());
+        preprocessor.setExcludedItems(new int[]{0});
+        preprocessor.setRemoveEmptyTransactions(true);
+        TransactionalDatabase reduced = preprocessor.preprocess(database);
+        assertEquals(database.getNbClass(), reduced.getNbItems());
+        assertArrayEquals(database.getClassCount(), reduced.getClassCount());
+    }
+
+    private Set<Pattern> findClosedPatterns(TransactionalDatabase database, int freqMin) {
+        Model model = new Model("closed test");
+        IntVar freq = model.intVar("freq", freqMin, database.getNbTransactions());
+        BoolVar[] x = model.boolVarArray("x", database.getNbItems());
+        model.sum(x, ">=", 1).post();
+        model.post(new Constraint("Cover Size", new PropCoverSize(database, freq, x)));
+        model.post(new Constraint("Closed", new PropCoverClosure(database, x)));
+        Set<Pattern> patterns = new HashSet<>();
+        for (Solution sol : model.getSolver().findAllSolutions()) {
+            int[] items = IntStream.range(0, x.length)
+                    .filter(i -> sol.getIntVal(x[i]) == 1)
+                    .flatMap(i -> Arrays.stream(database.getItemIds(i)))
+                    .sorted()
+                    .toArray();
+            patterns.add(new Pattern(items, new int[]{sol.getIntVal(freq)}));
+        }
+        return patterns;
+    }
+
+    @Test
+    public void testClosedPatterns() throws IOException {
+        for (String dataset : new String[]{"zoo/zoo.dat", "iris/iris.dat", "glass/glass.dat"}) {
+            TransactionalDatabase database = new DatReader("src/test/resources/" + dataset, 0, true).read();
+            int freqMin = database.getNbTransactions() / 10;
+            DatabasePreprocessor preprocessor = new DatabasePreprocessor();
+            preprocessor.setMinFreq(freqMin);
+            preprocessor.setRemoveEmptyTransactions(true);
+            preprocessor.setMergeEquivalentItems(true);
+            TransactionalDatabase reduced = preprocessor.preprocess(database);
+            assertTrue(reduced.getNbItems() < database.getNbItems());
+            assertEquals(findClosedPatterns(database, freqMin), findClosedPatterns(reduced, freqMin));
+        }
+    }
+}
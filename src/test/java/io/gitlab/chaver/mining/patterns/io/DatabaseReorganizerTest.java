@@ -0,0 +1,166 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import io.gitlab.chaver.mining.patterns.constraints.PropCoverSize;
+import io.gitlab.chaver.mining.patterns.util.ConstraintSettings;
+import io.gitlab.chaver.mining.patterns.util.HierarchicalBitSetFacade;
+import io.gitlab.chaver.mining.patterns.util.RSparseBitSetFacade;
+import io.gitlab.chaver.mining.patterns.util.StorageBitSetFacade;
+import io.gitlab.chaver.mining.patterns.util.TrailedSparseBitSetFacade;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static io.gitlab.chaver.mining.patterns.util.PatternUtil.readPatternStream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DatabaseReorganizerTest {
+
+    /**
+     * Check that each item of reorganized has the same cover (w.r.t. the original transactions) and the same values
+     * as in database
+     */
+    private void checkSameData(TransactionalDatabase database, TransactionalDatabase reorganized) {
+        assertEquals(database.getNbItems(), reorganized.getNbItems());
+        assertEquals(database.getNbTransactions(), reorganized.getNbTransactions());
+        assertEquals(database.getNbClass(), reorganized.getNbClass());
+        Map<Integer, Integer> itemsMap = database.getItemsMap();
+        for (int i = 0; i < reorganized.getNbItems(); i++) {
+            int j = itemsMap.get(reorganized.getItems()[i]);
+            BitSet cover = new BitSet();
+            BitSet reorganizedCover = reorganized.getVerticalRepresentation()[i];
+            for (int r = reorganizedCover.nextSetBit(0); r >= 0; r = reorganizedCover.nextSetBit(r + 1)) {
+                for (int t : reorganized.getTransactionIds(r)) {
+                    cover.set(t);
+                }
+            }
+            assertEquals(database.getVerticalRepresentation()[j], cover);
+            for (int m = 0; m < database.getValues().length; m++) {
+                assertEquals(database.getValues()[m][j], reorganized.getValues()[m][i]);
+            }
+        }
+    }
+
+    @Test
+    public void testSortItemsBySupport() throws IOException {
+        TransactionalDatabase database = new DatReader("src/test/resources/zoo/zoo.dat", 3).read();
+        for (String order : new String[]{DatabaseReorganizer.SUPPORT_ASC, DatabaseReorganizer.SUPPORT_DESC}) {
+            int[] permutation = DatabaseReorganizer.sortItemsBySupport(database, order);
+            TransactionalDatabase sorted = DatabaseReorganizer.permuteItems(database, permutation);
+            checkSameData(database, sorted);
+            for (int i = 0; i < database.getNbClass(); i++) {
+                assertEquals(database.getItems()[i], sorted.getItems()[i]);
+            }
+            int[] freq = sorted.computeItemFreq();
+            for (int i = database.getNbClass() + 1; i < freq.length; i++) {
+                assertTrue(order.equals(DatabaseReorganizer.SUPPORT_ASC) ? freq[i - 1] <= freq[i] :
+                        freq[i - 1] >= freq[i]);
+                // The items with the same support keep their order
+                assertTrue(freq[i - 1] != freq[i] || permutation[i - 1] < permutation[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testClusterTransactions() throws IOException {
+        TransactionalDatabase database = new DatReader("src/test/resources/zoo/zoo.dat", 3).read();
+        TransactionalDatabase sorted = DatabaseReorganizer.permuteItems(database,
+                DatabaseReorganizer.sortItemsBySupport(database, DatabaseReorganizer.SUPPORT_DESC));
+        checkSameData(database, DatabaseReorganizer.clusterTransactions(database));
+        checkSameData(database, DatabaseReorganizer.clusterTransactions(sorted));
+    }
+
+    /**
+     * Find the patterns of database whose frequency is at least freqMin with CoverSize
+     * @return the items and the frequency of each pattern
+     */
+    private Set<Pattern> findFrequentPatterns(TransactionalDatabase database, int freqMin) {
+        Model model = new Model("frequent test");
+        IntVar freq = model.intVar("freq", freqMin, database.getNbTransactions());
+        BoolVar[] x = model.boolVarArray("x", database.getNbItems());
+        model.sum(x, ">=", 1).post();
+        model.post(new Constraint("Cover Size", new PropCoverSize(database, freq, x)));
+        Set<Pattern> patterns = new HashSet<>();
+        for (Solution sol : model.getSolver().findAllSolutions()) {
+            int[] items = IntStream.range(0, x.length)
+                    .filter(i -> sol.getIntVal(x[i]) == 1)
+                    .map(i -> database.getItems()[i])
+                    .sorted()
+                    .toArray();
+            patterns.add(new Pattern(items, new int[]{sol.getIntVal(freq)}));
+        }
+        return patterns;
+    }
+
+    private void testFrequentPatterns(TransactionalDatabase database) throws IOException {
+        String resPath = "src/test/resources/contextPasquier99/frequent.txt";
+        Set<Pattern> expected = new HashSet<>(readPatternStream(new FileInputStream(resPath)));
+        assertEquals(expected, findFrequentPatterns(database, 2));
+    }
+
+    @Test
+    public void testFrequentPatterns() throws IOException {
+        TransactionalDatabase database = new DatReader("src/test/resources/contextPasquier99/contextPasquier99.dat",
+                0, true).read();
+        testFrequentPatterns(DatabaseReorganizer.clusterTransactions(DatabaseReorganizer.permuteItems(database,
+                DatabaseReorganizer.sortItemsBySupport(database, DatabaseReorganizer.SUPPORT_DESC))));
+        testFrequentPatterns(DatabaseReorganizer.mergeDuplicateTransactions(database));
+    }
+
+    @Test
+    public void testFrequentPatternsMerged() throws IOException {
+        // iris contains duplicate transactions : the frequencies are computed with the weights of the merged rows
+        TransactionalDatabase database = new DatReader("src/test/resources/iris/iris.dat", 0).read();
+        TransactionalDatabase merged = DatabaseReorganizer.mergeDuplicateTransactions(database);
+        assertTrue(merged.getNbRows() < database.getNbRows());
+        Set<Pattern> expected = findFrequentPatterns(database, 5);
+        assertTrue(expected.size() > 0);
+        String type = ConstraintSettings.BITSET_TYPE;
+        try {
+            for (String bitSetType : new String[]{RSparseBitSetFacade.TYPE, TrailedSparseBitSetFacade.TYPE,
+                    TrailedSparseBitSetFacade.DENSE_TYPE, HierarchicalBitSetFacade.TYPE}) {
+                ConstraintSettings.BITSET_TYPE = bitSetType;
+                assertEquals(expected, findFrequentPatterns(merged, 5));
+            }
+            ConstraintSettings.BITSET_TYPE = StorageBitSetFacade.TYPE;
+            assertEquals(expected, findFrequentPatterns(merged.compress(CompressedVerticalStorage.DEFAULT_ARRAY_DENSITY,
+                    CompressedVerticalStorage.DEFAULT_RUN_DENSITY), 5));
+        } finally {
+            ConstraintSettings.BITSET_TYPE = type;
+        }
+    }
+
+    @Test
+    public void testMergeDuplicateTransactions() throws IOException {
+        TransactionalDatabase database = new DatReader("src/test/resources/iris/iris.dat", 0).read();
+        TransactionalDatabase merged = DatabaseReorganizer.mergeDuplicateTransactions(database);
+        assertTrue(merged.getNbRows() < database.getNbRows());
+        assertEquals(database.getNbRows(), Arrays.stream(merged.getWeights()).sum());
+        checkSameData(database, merged);
+        assertArrayEquals(database.computeItemFreq(), merged.computeItemFreq());
+        assertArrayEquals(database.getClassCount(), merged.getClassCount());
+        checkSameData(database, DatabaseReorganizer.clusterTransactions(merged));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OffHeapVerticalStorageTest {
+
+    private void testWords(BitSet[] verticalRepresentation, int nbTransactions, VerticalStorage storage) {
+        int nbWords = (nbTransactions + 63) >>> 6;
+        assertEquals(verticalRepresentation.length, storage.getNbItems());
+        assertEquals(nbTransactions, storage.getNbTransactions());
+        for (int i = 0; i < verticalRepresentation.length; i++) {
+            long[] words = verticalRepresentation[i].toLongArray();
+            for (int k = 0; k <= nbWords; k++) {
+                assertEquals(k < words.length ? words[k] : 0, storage.getWord(i, k));
+            }
+            assertEquals(verticalRepresentation[i].cardinality(), storage.cardinality(i));
+            assertEquals(verticalRepresentation[i], storage.toBitSet(i));
+        }
+    }
+
+    @Test
+    public void testWriteAndMap() throws IOException {
+        int nbTransactions = 1000;
+        BitSet sparse = new BitSet();
+        for (int t = 0; t < nbTransactions; t += 97) {
+            sparse.set(t);
+        }
+        BitSet full = new BitSet();
+        full.set(0, nbTransactions);
+        BitSet[] verticalRepresentation = {sparse, full, new BitSet()};
+        OffHeapVerticalStorage storage = new OffHeapVerticalStorage(verticalRepresentation, nbTransactions);
+        testWords(verticalRepresentation, nbTransactions, storage);
+        Path file = Files.createTempFile("storage", ".bin");
+        try {
+            storage.write(file);
+            testWords(verticalRepresentation, nbTransactions, OffHeapVerticalStorage.map(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testOffHeapDatabase() throws IOException {
+        TransactionalDatabase database = new DatReader("src/test/resources/mushroom/mushroom.dat", 0).read();
+        TransactionalDatabase offHeap = database.offHeap();
+        testWords(database.getVerticalRepresentation(), database.getNbTransactions(), offHeap.getVerticalStorage());
+        assertEquals(database.getNbTransactions(), offHeap.getNbTransactions());
+        assertArrayEquals(database.computeItemFreq(), offHeap.computeItemFreq());
+        assertArrayEquals(database.getClassCount(), offHeap.getClassCount());
+        for (int i = 0; i < database.getNbItems(); i++) {
+            assertEquals(database.getCover(i), offHeap.getCover(i));
+        }
+        assertThrows(IllegalStateException.class, offHeap::getDatasetAsLongArray);
+        // The covers can be moved to another storage
+        TransactionalDatabase compressed = offHeap.compress(CompressedVerticalStorage.DEFAULT_ARRAY_DENSITY,
+                CompressedVerticalStorage.DEFAULT_RUN_DENSITY);
+        assertArrayEquals(database.computeItemFreq(), compressed.computeItemFreq());
+    }
+}
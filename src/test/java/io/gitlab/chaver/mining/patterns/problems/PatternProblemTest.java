@@ -25,6 +25,7 @@ import java.util.stream.Collectors;
 
 import static io.gitlab.chaver.mining.patterns.util.PatternUtil.readPatternStream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public abstract class PatternProblemTest {
 
@@ -39,6 +40,7 @@ public abstract class PatternProblemTest {
     protected final String zoo = "zoo";
     protected final String noBack = "no-back";
     protected final String mushroom = "mushroom";
+    protected final String mushroomSample = "mushroom_sample";
     protected final String max = "max";
 
     // Expected results
@@ -122,6 +124,78 @@ public abstract class PatternProblemTest {
         testEqualsPatterns(patterns, problem.getSolutions());
     }
 
+    /**
+     * Check that the options don't modify the solutions of the problem
+     * @param datasetName name of the dataset
+     * @param args arguments of the problem (except the dataset)
+     * @param options options which must not modify the solutions
+     */
+    protected void testSameSolutions(String datasetName, List<String> args, String... options) {
+        List<String> baseArgs = new LinkedList<>(Arrays.asList("-d", resourcesPath + datasetName + "/" + datasetName +
+                ".dat"));
+        baseArgs.addAll(args);
+        PatternProblem problem = getProblem();
+        new CommandLine(problem).execute(baseArgs.toArray(new String[0]));
+        List<Pattern> expected = problem.getSolutions();
+        baseArgs.addAll(Arrays.asList(options));
+        PatternProblem problemWithOptions = getProblem();
+        new CommandLine(problemWithOptions).execute(baseArgs.toArray(new String[0]));
+        assertTrue(expected.size() > 0);
+        testEqualsPatterns(expected, problemWithOptions.getSolutions());
+    }
+
+    @Test
+    public void testPreprocessingExcludedItems() {
+        // Item 15 has the same cover as item 1, item 35 is infrequent
+        List<String> args = Arrays.asList("--nc", "--clom", freqList, "--0i",
+                resourcesPath + zoo + "/excluded_items.txt", "--fmin", "3");
+        testSameSolutions(zoo, args, "--prep");
+        List<String> argsLmax = new LinkedList<>(args);
+        argsLmax.addAll(Arrays.asList("--lmax", "4"));
+        testSameSolutions(zoo, argsLmax, "--prep");
+        // Without excluded items
+        testSameSolutions(iris, Arrays.asList("--nc", "--clom", freqList, "--fmin", "10"), "--prep");
+    }
+
+    @Test
+    public void testBitSetType() {
+        // One transaction out of 20 of mushroom : the bitsets selected for the dense covers of 7 words are not the
+        // reversible sparse bitsets
+        List<String> args = Arrays.asList("--nc", "--clom", freqList, "--fmin", "100");
+        testSameSolutions(mushroomSample, args, "--bitset", "sparse");
+        testSameSolutions(mushroomSample, args, "--bitset", "hierarchical");
+        // The covers of the compressed database are read from its storage
+        testSameSolutions(mushroomSample, args, "--bitset", "compressed");
+    }
+
+    @Test
+    public void testReorganization() {
+        List<String> args = Arrays.asList("--nc", "--clom", freqList, "--fmin", "2");
+        testSameSolutions(iris, args, "--iorder", "asc");
+        testSameSolutions(iris, args, "--iorder", "desc");
+        testSameSolutions(iris, args, "--tcluster");
+    }
+
+    @Test
+    public void testMergeDuplicates() {
+        // Some transactions of iris are identical
+        List<String> args = Arrays.asList("--nc", "--clom", freqList, "--fmin", "2");
+        testSameSolutions(iris, args, "--dedup");
+        testSameSolutions(iris, args, "--dedup", "--tcluster");
+    }
+
+    @Test
+    public void testCoverSizeLookahead() {
+        List<String> args = Arrays.asList("--nc", "--clom", freqList, "--fmin", "2", "--fmax", "40");
+        testSameSolutions(iris, args, "--ublook", "4");
+    }
+
+    @Test
+    public void testMemoryReport() {
+        List<String> args = Arrays.asList("--nc", "--clom", freqList, "--fmin", "2");
+        testSameSolutions(iris, args, "--mem");
+    }
+
     @Test
     public void testClosedPatternAcd() throws Exception {
         testClosedPatterns(acd, closed_fm, freqList, minList, true, false);
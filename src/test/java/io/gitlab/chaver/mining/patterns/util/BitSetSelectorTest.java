@@ -0,0 +1,61 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import io.gitlab.chaver.mining.patterns.io.DatReader;
+import io.gitlab.chaver.mining.patterns.io.TransactionalDatabase;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BitSetSelectorTest {
+
+    private TransactionalDatabase sparseDatabase(int nbTransactions) {
+        BitSet[] verticalRepresentation = new BitSet[2];
+        for (int i = 0; i < verticalRepresentation.length; i++) {
+            verticalRepresentation[i] = new BitSet(nbTransactions);
+            for (int t = i; t < nbTransactions; t += 1000) {
+                verticalRepresentation[i].set(t);
+            }
+        }
+        return new TransactionalDatabase(new int[]{1, 2}, new int[0][], 0, verticalRepresentation, nbTransactions);
+    }
+
+    @Test
+    public void testSelect() throws IOException {
+        TransactionalDatabase zoo = new DatReader("src/test/resources/zoo/zoo.dat", 0).read();
+        assertEquals(RSparseBitSetFacade.TYPE, BitSetSelector.select(zoo));
+        TransactionalDatabase mushroom = new DatReader("src/test/resources/mushroom/mushroom.dat", 0).read();
+        assertEquals(TrailedSparseBitSetFacade.DENSE_TYPE, BitSetSelector.select(mushroom));
+        assertEquals(StorageBitSetFacade.TYPE, BitSetSelector.select(mushroom.offHeap()));
+        assertEquals(RSparseBitSetFacade.TYPE, BitSetSelector.select(sparseDatabase(64 * 100)));
+        int nbTransactions = 64 * BitSetSelector.HIERARCHICAL_NB_WORDS;
+        assertEquals(HierarchicalBitSetFacade.TYPE, BitSetSelector.select(sparseDatabase(nbTransactions)));
+    }
+
+    @Test
+    public void testDensityOfLargeDatabase() {
+        // nbItems * nbTransactions > Integer.MAX_VALUE
+        int nbItems = 1000;
+        int nbTransactions = 3_000_000;
+        BitSet[] verticalRepresentation = new BitSet[nbItems];
+        for (int i = 0; i < nbItems; i++) {
+            verticalRepresentation[i] = new BitSet(nbTransactions);
+            verticalRepresentation[i].set(0, 3000);
+        }
+        TransactionalDatabase database = new TransactionalDatabase(IntStream.range(1, nbItems + 1).toArray(),
+                new int[0][], 0, verticalRepresentation, nbTransactions);
+        assertEquals(0.001, database.getDensity(), 1e-12);
+    }
+}
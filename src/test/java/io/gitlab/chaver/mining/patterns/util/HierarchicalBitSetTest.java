@@ -0,0 +1,56 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import org.chocosolver.solver.Model;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class HierarchicalBitSetTest {
+
+    /** More than 4096 words (i.e. several blocks of 64 words), the last block is incomplete */
+    private final int nbits = 64 * (4096 + 100) + 7;
+
+    private void testBacktrack(long[] words, int[] weights, Random random, long[][] dataset) {
+        Model model = new Model();
+        HierarchicalBitSet bitSet = words == null ? new HierarchicalBitSet(model, nbits, weights) :
+                new HierarchicalBitSet(model, words, weights);
+        RSparseBitSet expected = words == null ? new RSparseBitSet(model, nbits, weights) :
+                new RSparseBitSet(model, words, weights);
+        new TrailedBitSetChecker(model, dataset, random).check(bitSet, expected, 5, 10);
+    }
+
+    @Test
+    public void testBacktrack() {
+        Random random = new Random(0);
+        long[][] dataset = TrailedBitSetChecker.randomDataset(random, 9, nbits);
+        testBacktrack(null, null, random, dataset);
+    }
+
+    @Test
+    public void testBacktrackWeighted() {
+        Random random = new Random(1);
+        long[][] dataset = TrailedBitSetChecker.randomDataset(random, 9, nbits);
+        int[] weights = new int[nbits];
+        for (int t = 0; t < nbits; t++) {
+            weights[t] = 1 + random.nextInt(3);
+        }
+        testBacktrack(null, weights, random, dataset);
+    }
+
+    @Test
+    public void testInitialWords() {
+        Random random = new Random(2);
+        long[][] dataset = TrailedBitSetChecker.randomDataset(random, 9, nbits);
+        // Initial cover with empty blocks
+        testBacktrack(dataset[1], null, random, dataset);
+    }
+}
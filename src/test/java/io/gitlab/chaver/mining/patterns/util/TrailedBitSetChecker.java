@@ -0,0 +1,133 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Model;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compare a {@link TrailedBitSet} with a {@link RSparseBitSet} (created in the same model) on random depth-first paths :
+ * at each node, a random item is intersected with both bitsets, then all the operations are compared, and the bitsets
+ * are compared again after each backtrack
+ */
+class TrailedBitSetChecker {
+
+    private final Model model;
+    private final long[][] dataset;
+    private final int[] items;
+    private final int[] counts;
+    private final int[] expectedCounts;
+    private final Random random;
+
+    TrailedBitSetChecker(Model model, long[][] dataset, Random random) {
+        this.model = model;
+        this.dataset = dataset;
+        this.items = IntStream.range(0, dataset.length).toArray();
+        this.counts = new int[dataset.length];
+        this.expectedCounts = new int[dataset.length];
+        this.random = random;
+    }
+
+    /**
+     * Random covers with different profiles : dense covers (a few words equal to 0), covers whose blocks of 64 words
+     * are either empty or dense, and sparse covers (most of the words equal to 0)
+     */
+    static long[][] randomDataset(Random random, int nbItems, int nbits) {
+        int nbWords = (nbits + 63) >>> 6;
+        long[][] dataset = new long[nbItems][nbWords];
+        for (int i = 0; i < nbItems; i++) {
+            int profile = i % 3;
+            boolean emptyBlock = false;
+            for (int k = 0; k < nbWords; k++) {
+                if (k % 64 == 0) {
+                    emptyBlock = profile == 1 && random.nextBoolean();
+                }
+                double zeroWord = profile == 0 ? 0.02 : profile == 1 ? (emptyBlock ? 1 : 0.05) : 0.8;
+                if (random.nextDouble() < zeroWord) {
+                    continue;
+                }
+                long word = -1L;
+                for (int b = 0; b < 64; b++) {
+                    if (random.nextDouble() < 0.1) {
+                        word &= ~(1L << b);
+                    }
+                }
+                dataset[i][k] = word;
+            }
+            // The bits after the last transaction are equal to 0
+            dataset[i][nbWords - 1] &= -1L >>> (-nbits & 63);
+        }
+        return dataset;
+    }
+
+    /**
+     * Simulate random depth-first paths on both bitsets and compare them at each node
+     * @param depth max depth of a path
+     * @param nbPaths number of paths
+     */
+    void check(TrailedBitSet bitSet, RSparseBitSet expected, int depth, int nbPaths) {
+        IEnvironment environment = model.getEnvironment();
+        int rootWorld = environment.getWorldIndex();
+        compare(bitSet, expected);
+        for (int p = 0; p < nbPaths; p++) {
+            int d = environment.getWorldIndex() - rootWorld;
+            for (; d < depth; d++) {
+                environment.worldPush();
+                // Several intersections in the same world must be undone together
+                int nbIntersections = 1 + random.nextInt(2);
+                for (int n = 0; n < nbIntersections; n++) {
+                    long[] m = dataset[random.nextInt(dataset.length)];
+                    bitSet.and(m);
+                    expected.and(m);
+                }
+                compare(bitSet, expected);
+            }
+            // Backtrack to a random depth
+            int target = rootWorld + random.nextInt(depth);
+            while (environment.getWorldIndex() > target) {
+                environment.worldPop();
+                compare(bitSet, expected);
+            }
+        }
+        environment.worldPopUntil(rootWorld);
+        compare(bitSet, expected);
+    }
+
+    private void compare(TrailedBitSet bitSet, RSparseBitSet expected) {
+        assertEquals(expected.convertToBitset(), bitSet.convertToBitset());
+        assertEquals(expected.cardinality(), bitSet.cardinality());
+        assertEquals(expected.isEmpty(), bitSet.isEmpty());
+        for (long[] m : dataset) {
+            int count = expected.andCount(m);
+            assertEquals(count, bitSet.andCount(m));
+            assertEquals(true, bitSet.andCountAtLeast(m, count));
+            assertEquals(false, bitSet.andCountAtLeast(m, count + 1));
+            assertEquals(true, expected.andCountAtLeast(m, count));
+            assertEquals(false, expected.andCountAtLeast(m, count + 1));
+            assertEquals(expected.isSubsetOf(m), bitSet.isSubsetOf(m));
+        }
+        int threshold = expected.cardinality() / 4;
+        bitSet.andCountUpTo(dataset, items, 0, items.length, threshold, counts);
+        expected.andCountUpTo(dataset, items, 0, items.length, threshold, expectedCounts);
+        assertArrayEquals(expectedCounts, counts);
+        bitSet.resetMask();
+        expected.resetMask();
+        long[] m = dataset[random.nextInt(dataset.length)];
+        bitSet.andMask(m);
+        expected.andMask(m);
+        assertEquals(expected.maskCardinality(), bitSet.maskCardinality());
+    }
+}
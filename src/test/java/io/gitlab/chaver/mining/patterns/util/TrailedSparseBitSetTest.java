@@ -0,0 +1,66 @@
+/*
+ * This file is part of io.gitlab.chaver:choco-mining (https://gitlab.com/chaver/choco-mining)
+ *
+ * Copyright (c) 2023, IMT Atlantique
+ *
+ * Licensed under the MIT license.
+ *
+ * See LICENSE file in the project root for full license information.
+ */
+package io.gitlab.chaver.mining.patterns.util;
+
+import org.chocosolver.solver.Model;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class TrailedSparseBitSetTest {
+
+    private final int nbits = 64 * 200 + 13;
+
+    private void testBacktrack(double denseRatio, int[] weights) {
+        Random random = new Random(0);
+        long[][] dataset = TrailedBitSetChecker.randomDataset(random, 12, nbits);
+        Model model = new Model();
+        TrailedSparseBitSet bitSet = new TrailedSparseBitSet(model, nbits, weights);
+        bitSet.setDenseRatio(denseRatio);
+        RSparseBitSet expected = new RSparseBitSet(model, nbits, weights);
+        new TrailedBitSetChecker(model, dataset, random).check(bitSet, expected, 6, 40);
+    }
+
+    @Test
+    public void testBacktrack() {
+        testBacktrack(2, null);
+    }
+
+    @Test
+    public void testBacktrackDense() {
+        // The covers switch between the dense and the sparse loops along the paths
+        for (double denseRatio : new double[]{0, 0.5, 0.9}) {
+            testBacktrack(denseRatio, null);
+        }
+    }
+
+    @Test
+    public void testBacktrackWeighted() {
+        Random random = new Random(1);
+        int[] weights = new int[nbits];
+        for (int t = 0; t < nbits; t++) {
+            weights[t] = 1 + random.nextInt(3);
+        }
+        testBacktrack(2, weights);
+        testBacktrack(0.5, weights);
+    }
+
+    @Test
+    public void testInitialWords() {
+        Random random = new Random(2);
+        long[][] dataset = TrailedBitSetChecker.randomDataset(random, 12, nbits);
+        Model model = new Model();
+        // Sparse initial cover : some words are removed from the index when the bitset is created
+        TrailedSparseBitSet bitSet = new TrailedSparseBitSet(model, dataset[2], null);
+        bitSet.setDenseRatio(0.5);
+        RSparseBitSet expected = new RSparseBitSet(model, dataset[2], null);
+        new TrailedBitSetChecker(model, dataset, random).check(bitSet, expected, 4, 20);
+    }
+}